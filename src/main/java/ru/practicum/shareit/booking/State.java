@@ -4,5 +4,7 @@ public enum State {
     PAST,
     FUTURE,
     CURRENT,
-    ALL
+    ALL,
+    WAITING,
+    REJECTED
 }
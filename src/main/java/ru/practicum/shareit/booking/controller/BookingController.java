@@ -2,20 +2,20 @@ package ru.practicum.shareit.booking.controller;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.booking.Role;
 import ru.practicum.shareit.booking.State;
 import ru.practicum.shareit.booking.Status;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoBack;
-import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.dto.BookingPage;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.handler.exception.ValidationException;
 
 import javax.validation.Valid;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -28,11 +28,13 @@ import static java.time.LocalDateTime.now;
 @AllArgsConstructor
 @RequestMapping(path = "/bookings")
 public class BookingController {
+    private static final int BOOKING_PAGE_SIZE = 20;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     private final BookingService bookingService;
 
     @PostMapping
-    public ResponseEntity<Booking> add(@RequestHeader Map<String, String> headers,
+    public ResponseEntity<BookingDtoBack> add(@RequestHeader Map<String, String> headers,
                                        @RequestHeader("X-Sharer-User-Id") long userId,
                                        @RequestBody BookingDto bookingDto) {
 
@@ -86,51 +88,10 @@ public class BookingController {
                                                                 @RequestHeader("X-Sharer-User-Id") Long userId,
                                                                 @Valid @RequestParam(name = "state") Optional<String> state,
                                                                 @Valid @RequestParam(name = "from") Optional<Long> from,
-                                                                @Valid @RequestParam(name = "size") Optional<Long> size
+                                                                @Valid @RequestParam(name = "size") Optional<Long> size,
+                                                                @RequestParam(name = "cursor") Optional<String> cursor
     ) {
-        if (!headers.containsKey("x-sharer-user-id")) {
-            log.info("Нет заголовка: X-Sharer-User-Id.");
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        }
-        if (userId < 0) {
-            log.info("Значение itemId не может быть меньше нуля");
-            throw new ValidationException("getItem: Введите положительный itemId.");
-        }
-
-        if (from.isPresent() && size.isPresent()) {
-            if (from.get() < 0 || size.get() < 0) {
-                log.info("own:Значение from или size не может быть меньше нуля");
-                throw new ValidationException("from или size не может быть меньше нуля: Введите положительные значения.");
-            }
-            if (from.get() == 0 && size.get() == 0) {
-                log.info("Значение from и size не могут быть равны нулю");
-                throw new ValidationException("from и size не могут быть равны нулю : Введите положительные значения.");
-            }
-
-            if (from.get() > 0 && size.get() > 0) {
-                return new ResponseEntity<>(bookingService.getAllOwnBookingPaged(userId, from.get(), size.get()), HttpStatus.OK);
-            }
-        }
-        LocalDateTime now = LocalDateTime.parse(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")));
-
-        if (state.isEmpty() || state.get().equals(State.ALL.toString())) {
-            return new ResponseEntity<>(bookingService.getBookingOwner(userId), HttpStatus.OK);
-        } else if (state.get().equals(State.PAST.toString())) {
-            return new ResponseEntity<>(bookingService.getBookingOwnerPast(userId, now), HttpStatus.OK);
-
-        } else if (state.get().equals(State.CURRENT.toString())) {
-            return new ResponseEntity<>(bookingService.getBookingOwnerCurrent(userId, now), HttpStatus.OK);
-        } else if (state.get().equals(State.FUTURE.toString())) {
-            return new ResponseEntity<>(bookingService.getBookingOwnerFuture(userId, now), HttpStatus.OK);
-
-        } else if (state.get().equals(Status.WAITING.toString()) || state.get().equals(Status.REJECTED.toString())) {
-            return new ResponseEntity<>(bookingService.getBookingOwnerStatus(userId, Status.valueOf(state.get())), HttpStatus.OK);
-
-        } else {
-
-            throw new ValidationException("Unknown state: UNSUPPORTED_STATUS");
-        }
-
+        return getBookings(headers, userId, Role.OWNER, state, from, size, cursor);
     }
 
     @GetMapping
@@ -138,49 +99,56 @@ public class BookingController {
                                                                  @RequestHeader("X-Sharer-User-Id") Long userId,
                                                                  @Valid @RequestParam(name = "state") Optional<String> state,
                                                                  @Valid @RequestParam(name = "from") Optional<Long> from,
-                                                                 @Valid @RequestParam(name = "size") Optional<Long> size) {
+                                                                 @Valid @RequestParam(name = "size") Optional<Long> size,
+                                                                 @RequestParam(name = "cursor") Optional<String> cursor) {
+        return getBookings(headers, userId, Role.BOOKER, state, from, size, cursor);
+    }
+
+    private ResponseEntity<List<BookingDtoBack>> getBookings(Map<String, String> headers, Long userId, Role role,
+                                                             Optional<String> state, Optional<Long> from,
+                                                             Optional<Long> size, Optional<String> cursor) {
         if (!headers.containsKey("x-sharer-user-id")) {
             log.info("Нет заголовка: X-Sharer-User-Id.");
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
         if (userId < 0) {
-            log.info("Значение itemId не может быть меньше нуля");
+            log.info("Значение userId не может быть меньше нуля");
             throw new ValidationException("getItem: Введите положительный itemId.");
         }
-
+        State bookingState;
+        try {
+            bookingState = State.valueOf(state.orElse(State.ALL.toString()));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Unknown state: UNSUPPORTED_STATUS");
+        }
+        if (cursor.isPresent() || (size.isPresent() && from.isEmpty())) {
+            if (size.isPresent() && size.get() <= 0) {
+                log.info("Значение size должно быть больше нуля");
+                throw new ValidationException("Введите положительный size.");
+            }
+            BookingPage page = bookingService.getBookingsPage(userId, role, bookingState, cursor.orElse(null),
+                    size.map(Long::intValue).orElse(BOOKING_PAGE_SIZE));
+            HttpHeaders responseHeaders = new HttpHeaders();
+            if (page.getNext() != null) {
+                responseHeaders.set(NEXT_CURSOR_HEADER, page.getNext());
+            }
+            return new ResponseEntity<>(page.getBookings(), responseHeaders, HttpStatus.OK);
+        }
+        Long pageFrom = null;
+        Long pageSize = null;
         if (from.isPresent() && size.isPresent()) {
             if (from.get() < 0 || size.get() < 0) {
-                log.info("booker:Значение from или size не может быть меньше нуля");
+                log.info(role + ": Значение from или size не может быть меньше нуля");
                 throw new ValidationException("from или size не может быть меньше нуля: Введите положительные значения.");
             }
             if (from.get() == 0 && size.get() == 0) {
                 log.info("Значение from и size не могут быть равны нулю");
                 throw new ValidationException("from и size не могут быть равны нулю : Введите положительные значения.");
             }
-            if (from.get() > 0 && size.get() > 0) {
-                return new ResponseEntity<>(bookingService.getAllBookingPaged(userId, from.get(), size.get()), HttpStatus.OK);
-            }
+            pageFrom = from.get();
+            pageSize = size.get();
         }
-        LocalDateTime now = LocalDateTime.parse(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")));
-
-        if (state.isEmpty() || state.get().equals(State.ALL.toString())) {
-            return new ResponseEntity<>(bookingService.getBookingBooker(userId), HttpStatus.OK);
-        } else if (state.get().equals(State.PAST.toString())) {
-            return new ResponseEntity<>(bookingService.getBookingBookerPast(userId, now), HttpStatus.OK);
-
-        } else if (state.get().equals(State.CURRENT.toString())) {
-            return new ResponseEntity<>(bookingService.getBookingBookerCurrent(userId, now), HttpStatus.OK);
-
-        } else if (state.get().equals(State.FUTURE.toString())) {
-            return new ResponseEntity<>(bookingService.getBookingBookerFuture(userId, now), HttpStatus.OK);
-
-        } else if (state.get().equals(Status.WAITING.toString()) || state.get().equals(Status.REJECTED.toString())) {
-            return new ResponseEntity<>(bookingService.getBookingBookerStatus(userId, Status.valueOf(state.get())), HttpStatus.OK);
-
-        } else {
-            throw new ValidationException("Unknown state: UNSUPPORTED_STATUS");
-        }
-
+        return new ResponseEntity<>(bookingService.getBookings(userId, role, bookingState, pageFrom, pageSize), HttpStatus.OK);
     }
 
     @PatchMapping("/{bookingId}")
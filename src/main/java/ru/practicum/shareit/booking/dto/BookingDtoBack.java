@@ -6,8 +6,6 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import ru.practicum.shareit.booking.Status;
-import ru.practicum.shareit.item.model.Item;
-import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
 
@@ -21,9 +19,19 @@ public class BookingDtoBack {
     LocalDateTime start;
     LocalDateTime end;
 
-    Item item;
+    BookingItemDto item;
 
-    User booker;
+    BookerDto booker;
 
     Status status;
+
+    /**
+     * Flat row of the booking projections in BookingRepository.
+     */
+    public BookingDtoBack(Long id, LocalDateTime start, LocalDateTime end, Long itemId, String itemName,
+                          String itemDescription, Boolean itemAvailable, Long itemRequestId, Long bookerId,
+                          String bookerName, Status status) {
+        this(id, start, end, new BookingItemDto(itemId, itemName, itemDescription, itemAvailable, itemRequestId),
+                new BookerDto(bookerId, bookerName), status);
+    }
 }
@@ -27,12 +27,18 @@ public class BookingMapper {
     }
 
     public static BookingDtoBack toBookingDtoBack(Booking booking) {
+        Item item = booking.getItem();
         return new BookingDtoBack(
                 booking.getId(),
                 booking.getStart(),
                 booking.getEnd(),
-                booking.getItem(),
-                booking.getBooker(),
+                item.getId(),
+                item.getName(),
+                item.getDescription(),
+                item.getAvailable(),
+                item.getRequestId(),
+                booking.getBooker().getId(),
+                booking.getBooker().getName(),
                 booking.getStatus()
         );
     }
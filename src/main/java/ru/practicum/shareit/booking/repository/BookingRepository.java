@@ -6,47 +6,47 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingDtoBack;
 import ru.practicum.shareit.booking.model.Booking;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface BookingRepository extends JpaRepository<Booking, Long> {
-    @Query("select i  from Booking as i left join i.item as u left join u.owner as o  where o.id = ?1 order by i.id desc ")
-    List<Booking> findByOwner(Long owner);
-
-    @Query("select i  from Booking as i left join i.item as u left join u.owner as o  where o.id = ?1 order by i.id desc ")
-    List<Booking> findByOwnerPaged(Long userId, PageRequest page);
-
-    @Query("select i  from Booking as i left join i.booker as u  where u.id = ?1 order by i.id desc")
-    List<Booking> findByBooker(Long booker);
-
-    @Query("select i  from Booking as i left join i.booker as u  where u.id = ?1 order by i.id desc")
-    List<Booking> findByBookerPaged(Long userId, PageRequest page);
-
-    List<Booking> findByBooker_IdAndStartIsAfterOrderByIdDesc(Long bookerId, LocalDateTime now);
-
-    List<Booking> findByBooker_IdAndEndIsBeforeOrderByIdDesc(Long bookerId, LocalDateTime now);
+public interface BookingRepository extends JpaRepository<Booking, Long>, BookingRepositoryCustom {
+    @Query("select i from Booking as i where i.item.id = ?1")
+    List<Booking> findByItem_Id(Long itemId);
 
-    List<Booking> findByBooker_IdAndEndIsAfterAndStartIsBeforeOrderByIdAsc(Long bookerId, LocalDateTime now, LocalDateTime now1);
+    @Query("select new ru.practicum.shareit.booking.dto.BookingDtoBack(i.id, i.start, i.end, it.id, it.name, " +
+            "it.description, it.available, it.requestId, b.id, b.name, i.status) " +
+            "from Booking as i join i.item as it join i.booker as b where i.id = ?1 and (b.id = ?2 or it.owner.id = ?2)")
+    Optional<BookingDtoBack> findDtoByIdForUser(Long bookingId, Long userId);
 
-    @Query("select i  from Booking as i left join i.item as u left join u.owner as o  where o.id = ?1 and i.start > ?2 order by i.id desc ")
-    List<Booking> findByOwnerAndStartIsAfter(Long owner, LocalDateTime now);
+    @Query("select i from Booking as i join fetch i.item join fetch i.booker where i.id = ?1")
+    Optional<Booking> findByIdFetchItemAndBooker(Long bookingId);
 
-    @Query("select i  from Booking as i left join i.item as u left join u.owner as o  where o.id = ?1 and i.end < ?2 order by i.id desc")
-    List<Booking> findByOwnerAndEndIsBefore(Long owner, LocalDateTime now);
+    @Query("select i.item.id from Booking as i where i.id = ?1")
+    Optional<Long> findItemIdById(Long bookingId);
 
-    @Query("select i  from Booking as i left join i.item as u left join u.owner as o  where o.id = ?1 and i.end > ?2 and i.start <?2 order by i.id asc")
-    List<Booking> findByOwner_IdAndEndIsAfterAndStartIsBeforeOrderByIdAsc(Long owner, LocalDateTime now);
+    // item id and status lead the order so that the database walks ix_bookings_item_status_start instead of sorting
+    // the item's history; a single status keeps it one seek, and end_date is in the index, so no table read
+    @Query("select i.end from Booking as i where i.item.id = ?1 and i.status = ?2 and i.start < ?3 " +
+            "order by i.item.id, i.status, i.start desc")
+    List<LocalDateTime> findLastEndStartingBefore(Long itemId, Status status, LocalDateTime end, PageRequest page);
 
-    List<Booking> findByItem_Id(Long itemId);
+    @Query("select i  from Booking as i join fetch i.booker where i.item.id in ?1 and i.start = " +
+            "(select max(b.start) from Booking as b where b.item.id = i.item.id and b.start < ?2)")
+    List<Booking> findLastByItemIds(Collection<Long> itemIds, LocalDateTime now);
 
-    @Query("select i  from Booking as i left join i.item as u left join u.owner as o  where o.id = ?1 and i.status =?2 order by i.id desc ")
-    List<Booking> findByOwnerAndStatus(Long userId, Status status);
+    @Query("select i  from Booking as i join fetch i.booker where i.item.id in ?1 and i.start = " +
+            "(select min(b.start) from Booking as b where b.item.id = i.item.id and b.start > ?2)")
+    List<Booking> findNextByItemIds(Collection<Long> itemIds, LocalDateTime now);
 
-    List<Booking> findByBooker_IdAndStatus(Long userId, Status status);
+    @Query("select i  from Booking as i join fetch i.item join fetch i.booker where i.status = ?1")
+    List<Booking> findByStatusFetchItemAndBooker(Status status);
 
+    @Query("select i from Booking as i where i.item.id = ?1 and i.booker.id = ?2 and i.status = ?3")
     Optional<List<Booking>> findByItem_IdAndBooker_idAndStatus(Long itemId, Long userId, Status status);
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.springframework.data.domain.Pageable;
+import ru.practicum.shareit.booking.Role;
+import ru.practicum.shareit.booking.State;
+import ru.practicum.shareit.booking.dto.BookingDtoBack;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BookingRepositoryCustom {
+    /**
+     * Bookings of the user's items (owner) or made by the user (booker) in the given state, newest first
+     * ({@link State#CURRENT} oldest first), projected together with their item and booker in one query. A non-null
+     * {@code afterId} starts the list right after that booking instead of skipping rows.
+     */
+    List<BookingDtoBack> findBookings(Long userId, Role role, State state, LocalDateTime now, Long afterId, Pageable page);
+}
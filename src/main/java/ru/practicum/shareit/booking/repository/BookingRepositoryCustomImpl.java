@@ -0,0 +1,83 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.springframework.data.domain.Pageable;
+import ru.practicum.shareit.booking.Role;
+import ru.practicum.shareit.booking.State;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingDtoBack;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class BookingRepositoryCustomImpl implements BookingRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<BookingDtoBack> findBookings(Long userId, Role role, State state, LocalDateTime now, Long afterId,
+                                             Pageable page) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookingDtoBack> query = cb.createQuery(BookingDtoBack.class);
+        Root<Booking> booking = query.from(Booking.class);
+        Join<Booking, Item> item = booking.join("item");
+        Join<Booking, User> booker = booking.join("booker");
+
+        // ids are bound rather than inlined, so every user shares one statement per role and state
+        ParameterExpression<Long> userParameter = cb.parameter(Long.class);
+        ParameterExpression<Long> afterParameter = cb.parameter(Long.class);
+        Predicate user = role == Role.OWNER
+                ? cb.equal(item.get("owner").get("id"), userParameter)
+                : cb.equal(booking.get("booker").get("id"), userParameter);
+        boolean ascending = state == State.CURRENT;
+        Predicate where = cb.and(user, inState(cb, booking, state, now));
+        if (afterId != null) {
+            where = cb.and(where, ascending
+                    ? cb.greaterThan(booking.get("id"), afterParameter)
+                    : cb.lessThan(booking.get("id"), afterParameter));
+        }
+        query.select(cb.construct(BookingDtoBack.class, booking.get("id"), booking.get("start"), booking.get("end"),
+                        item.get("id"), item.get("name"), item.get("description"), item.get("available"),
+                        item.get("requestId"), booker.get("id"), booker.get("name"), booking.get("status")))
+                .where(where)
+                .orderBy(ascending ? cb.asc(booking.get("id")) : cb.desc(booking.get("id")));
+
+        TypedQuery<BookingDtoBack> typed = entityManager.createQuery(query).setParameter(userParameter, userId);
+        if (afterId != null) {
+            typed.setParameter(afterParameter, afterId);
+        }
+        if (page.isPaged()) {
+            typed.setFirstResult((int) page.getOffset());
+            typed.setMaxResults(page.getPageSize());
+        }
+        return typed.getResultList();
+    }
+
+    private static Predicate inState(CriteriaBuilder cb, Root<Booking> booking, State state, LocalDateTime now) {
+        switch (state) {
+            case PAST:
+                return cb.lessThan(booking.get("end"), now);
+            case FUTURE:
+                return cb.greaterThan(booking.get("start"), now);
+            case CURRENT:
+                return cb.and(cb.lessThan(booking.get("start"), now), cb.greaterThan(booking.get("end"), now));
+            case WAITING:
+                return cb.equal(booking.get("status"), Status.WAITING);
+            case REJECTED:
+                return cb.equal(booking.get("status"), Status.REJECTED);
+            default:
+                return cb.conjunction();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import ru.practicum.shareit.handler.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Id of the last booking on a page; the next page continues after it in the order of the list.
+ * Clients only see it as an opaque token.
+ */
+@Getter
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class BookingCursor {
+    long id;
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("b:" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BookingCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!value.startsWith("b:")) {
+                throw new IllegalArgumentException();
+            }
+            return new BookingCursor(Long.parseLong(value.substring(2)));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.handler.exception.ObjectNotFoundException;
+import ru.practicum.shareit.handler.exception.ServiceUnavailableException;
+import ru.practicum.shareit.handler.exception.ValidationException;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Serializes booking writes per item. Every item with pending writes has a lane that is drained by one
+ * worker at a time, lanes of different items are drained in parallel. The worker runs everything queued
+ * for the item, up to the batch size, in one transaction and answers the callers after commit.
+ * <p>
+ * Commands must validate before writing: {@link ValidationException} and {@link ObjectNotFoundException}
+ * fail only their own command, any other exception rolls the batch back and its commands are retried
+ * one per transaction.
+ * <p>
+ * A caller waits for its command at most the configured timeout and then gets {@link ServiceUnavailableException}.
+ * A command that has not been picked up by then is dropped, so the caller can safely retry.
+ */
+@Slf4j
+@Component
+public class BookingSequencer {
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final int batchSize;
+    private final long timeoutMillis;
+    private final Map<Long, Queue<Task<?>>> lanes = new ConcurrentHashMap<>();
+
+    public BookingSequencer(PlatformTransactionManager transactionManager,
+                            @Value("${shareit.booking.sequencer-threads:8}") int threads,
+                            @Value("${shareit.booking.sequencer-batch-size:100}") int batchSize,
+                            @Value("${shareit.booking.sequencer-timeout-ms:5000}") long timeoutMillis) {
+        AtomicInteger counter = new AtomicInteger();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "booking-sequencer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchSize = batchSize;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public <T> T submit(Long itemId, Supplier<T> command) {
+        Task<T> task = new Task<>(command);
+        lanes.compute(itemId, (k, lane) -> {
+            Queue<Task<?>> queue = lane == null ? new ConcurrentLinkedQueue<>() : lane;
+            queue.add(task);
+            if (lane == null) {
+                executor.execute(() -> drain(k, queue));
+            }
+            return queue;
+        });
+        try {
+            return task.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            log.info("Бронирование вещи " + itemId + " не обработано за " + timeoutMillis + " мс.");
+            if (task.cancel()) {
+                throw new ServiceUnavailableException("Бронирование не обработано, повторите запрос позже.");
+            }
+            throw new ServiceUnavailableException("Бронирование еще обрабатывается, проверьте его статус позже.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.cancel();
+            throw new ServiceUnavailableException("Бронирование прервано.");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void drain(Long itemId, Queue<Task<?>> queue) {
+        List<Task<?>> batch = new ArrayList<>();
+        Task<?> task;
+        while (batch.size() < batchSize && (task = queue.poll()) != null) {
+            if (task.start()) {
+                batch.add(task);
+            }
+        }
+        try {
+            run(batch);
+        } finally {
+            lanes.compute(itemId, (k, lane) -> {
+                if (lane.isEmpty()) {
+                    return null;
+                }
+                executor.execute(() -> drain(k, lane));
+                return lane;
+            });
+        }
+    }
+
+    private void run(List<Task<?>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(Task::run));
+            batch.forEach(Task::complete);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).future.completeExceptionally(e);
+                return;
+            }
+            log.info("Пакет бронирований отменен, повтор по одному: " + e.getMessage());
+            batch.forEach(x -> run(List.of(x)));
+        }
+    }
+
+    private static class Task<T> {
+        private final Supplier<T> command;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private T result;
+        private RuntimeException error;
+
+        Task(Supplier<T> command) {
+            this.command = command;
+        }
+
+        /**
+         * Claims the task for the worker, fails if the caller has already given up on it.
+         */
+        boolean start() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        /**
+         * Claims the task for the caller, fails if a worker has already started it.
+         */
+        boolean cancel() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        void run() {
+            try {
+                result = command.get();
+                error = null;
+            } catch (ValidationException | ObjectNotFoundException e) {
+                result = null;
+                error = e;
+            }
+        }
+
+        void complete() {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+}
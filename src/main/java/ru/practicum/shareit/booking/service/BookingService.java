@@ -1,42 +1,23 @@
 package ru.practicum.shareit.booking.service;
 
+import ru.practicum.shareit.booking.Role;
+import ru.practicum.shareit.booking.State;
 import ru.practicum.shareit.booking.Status;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoBack;
-import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.dto.BookingPage;
 
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 public interface BookingService {
-    Booking addNewBooking(BookingDto bookingDto);
+    BookingDtoBack addNewBooking(BookingDto bookingDto);
 
     BookingDtoBack getBooking(Long bookingId, Long userId);
 
-    List<BookingDtoBack> getBookingOwner(Long userId);
+    List<BookingDtoBack> getBookings(Long userId, Role role, State state, Long from, Long size);
 
-    List<BookingDtoBack> getBookingBooker(Long userId);
-
-    List<BookingDtoBack> getBookingBookerFuture(Long userId, LocalDateTime now);
-
-    List<BookingDtoBack> getBookingOwnerFuture(Long owner, LocalDateTime now);
-
-    List<BookingDtoBack> getBookingOwnerPast(Long userId, LocalDateTime now);
-
-    List<BookingDtoBack> getBookingOwnerCurrent(Long userId, LocalDateTime now);
+    BookingPage getBookingsPage(Long userId, Role role, State state, String cursor, int size);
 
     BookingDtoBack bookingUpdate(Long bookingId, Long userId, Status status);
-
-    List<BookingDtoBack> getBookingOwnerStatus(Long userId, Status status);
-
-    List<BookingDtoBack> getBookingBookerStatus(Long userId, Status status);
-
-    List<BookingDtoBack> getBookingBookerPast(Long userId, LocalDateTime now);
-
-    List<BookingDtoBack> getBookingBookerCurrent(Long userId, LocalDateTime now);
-
-    List<BookingDtoBack> getAllOwnBookingPaged(Long userId,Long from,Long size);
-
-    List<BookingDtoBack> getAllBookingPaged(Long userId,Long from,Long size);
-}
\ No newline at end of file
+}
@@ -2,11 +2,15 @@ package ru.practicum.shareit.booking.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Role;
+import ru.practicum.shareit.booking.State;
 import ru.practicum.shareit.booking.Status;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoBack;
+import ru.practicum.shareit.booking.dto.BookingPage;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
@@ -19,146 +23,123 @@ import ru.practicum.shareit.user.repository.UserRepository;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class BookingServiceImpl implements BookingService {
+    private static final List<Status> ACTIVE = List.of(Status.WAITING, Status.APPROVED);
+
     private final BookingRepository bookingRepository;
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
+    private final BookingTimelineIndex bookingTimeline;
+    private final BookingSequencer sequencer;
 
-    @Transactional
     @Override
-    public Booking addNewBooking(BookingDto bookingDto) {
+    public BookingDtoBack addNewBooking(BookingDto bookingDto) {
+        if (bookingDto.getItem() == null) {
+            throw new ObjectNotFoundException("Item not found");
+        }
+        return sequencer.submit(bookingDto.getItem(), () -> createBooking(bookingDto));
+    }
+
+    private BookingDtoBack createBooking(BookingDto bookingDto) {
         bookingDto.setStatus(Status.WAITING);
         User user = userRepository.findById(bookingDto.getBooker()).orElseThrow(() -> new ObjectNotFoundException("User not found"));
-        Item item = itemRepository.findById(bookingDto.getItem()).orElseThrow(() -> new ObjectNotFoundException("Item not found"));
+        Item item = itemRepository.findByIdForUpdate(bookingDto.getItem()).orElseThrow(() -> new ObjectNotFoundException("Item not found"));
         if (user.getId().equals(item.getOwner().getId())) {
             throw new ObjectNotFoundException("Хозяин вещи не может ее бронировать");
         }
         if (item.getAvailable().equals(Boolean.FALSE)) {
             throw new ValidationException("Вещь не доступна");
         }
+        if (overlaps(item.getId(), ACTIVE, bookingDto.getStart(), bookingDto.getEnd())) {
+            throw new ValidationException("Вещь уже забронирована на это время");
+        }
 
         Booking booking = bookingRepository.save(BookingMapper.toDtoBooking(bookingDto, user, item));
-        return booking;
-    }
-
-    @Transactional
-    @Override
-    public BookingDtoBack getBooking(Long bookingId, Long userId) {
-        Booking booking = bookingRepository.findById(bookingId).orElseThrow(() -> new ObjectNotFoundException("Booking not found"));
-        if (!(booking.getBooker().getId().equals(userId) || booking.getItem().getOwner().getId().equals(userId))) {
-            throw new ObjectNotFoundException("Пользователь не является инициатором бронирования или хозяином вещи");
-        }
+        bookingTimeline.update(booking);
         return BookingMapper.toBookingDtoBack(booking);
-
-    }
-
-    @Transactional
-    @Override
-    public List<BookingDtoBack> getBookingOwner(Long userId) {
-        userRepository.findById(userId).orElseThrow(() -> new ObjectNotFoundException("User not found"));
-        return bookingRepository.findByOwner(userId).stream().map(BookingMapper::toBookingDtoBack).collect(Collectors.toList());
-    }
-
-
-    @Transactional
-    @Override
-    public List<BookingDtoBack> getBookingBooker(Long userId) {
-        userRepository.findById(userId).orElseThrow(() -> new ObjectNotFoundException("User not found"));
-        return bookingRepository.findByBooker(userId).stream().map(BookingMapper::toBookingDtoBack).collect(Collectors.toList());
-    }
-
-    @Transactional
-    @Override
-    public List<BookingDtoBack> getAllOwnBookingPaged(Long userId, Long from, Long size) {
-        userRepository.findById(userId).orElseThrow(() -> new ObjectNotFoundException("User not found"));
-        PageRequest page = PageRequest.of(from.intValue() > 0 ? from.intValue() / size.intValue() : 0, size.intValue());
-
-        return bookingRepository.findByOwnerPaged(userId, page).stream().map(BookingMapper::toBookingDtoBack).collect(Collectors.toList());
-    }
-
-
-    @Transactional
-    @Override
-    public List<BookingDtoBack> getAllBookingPaged(Long userId, Long from, Long size) {
-        PageRequest page = PageRequest.of(from.intValue() > 0 ? from.intValue() / size.intValue() : 0, size.intValue());
-        return bookingRepository.findByBookerPaged(userId, page).stream().map(BookingMapper::toBookingDtoBack).collect(Collectors.toList());
-    }
-
-
-    @Transactional
-    @Override
-    public List<BookingDtoBack> getBookingBookerFuture(Long bookerId, LocalDateTime start) {
-        return bookingRepository.findByBooker_IdAndStartIsAfterOrderByIdDesc(bookerId, start).stream()
-                .map(BookingMapper::toBookingDtoBack).collect(Collectors.toList());
     }
 
-    @Transactional
-    @Override
-    public List<BookingDtoBack> getBookingBookerPast(Long bookerId, LocalDateTime now) {
-        return bookingRepository.findByBooker_IdAndEndIsBeforeOrderByIdDesc(bookerId, now).stream()
-                .map(BookingMapper::toBookingDtoBack).collect(Collectors.toList());
+    /**
+     * Waiting and approved bookings of an item never overlap: every write that makes a booking active is checked
+     * here, and BookingOverlapMigration fixed older rows. So within a status their ends grow with their starts and
+     * only the latest one starting before {@code end} can reach past {@code start}. That is one seek per status on
+     * ix_bookings_item_status_start; the item row is locked by the caller, so requests from other nodes are checked in turn.
+     */
+    private boolean overlaps(Long itemId, List<Status> statuses, LocalDateTime start, LocalDateTime end) {
+        for (Status status : statuses) {
+            List<LocalDateTime> ends = bookingRepository.findLastEndStartingBefore(itemId, status, end, PageRequest.of(0, 1));
+            if (!ends.isEmpty() && ends.get(0).isAfter(start)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Override
-    public List<BookingDtoBack> getBookingBookerCurrent(Long bookerId, LocalDateTime now) {
-        return bookingRepository.findByBooker_IdAndEndIsAfterAndStartIsBeforeOrderByIdAsc(bookerId, now, now).stream()
-                .map(BookingMapper::toBookingDtoBack).collect(Collectors.toList());
+    public BookingDtoBack getBooking(Long bookingId, Long userId) {
+        return bookingRepository.findDtoByIdForUser(bookingId, userId).orElseThrow(() -> bookingRepository.existsById(bookingId)
+                ? new ObjectNotFoundException("Пользователь не является инициатором бронирования или хозяином вещи")
+                : new ObjectNotFoundException("Booking not found"));
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Override
-    public List<BookingDtoBack> getBookingOwnerFuture(Long owner, LocalDateTime now) {
-        return bookingRepository.findByOwnerAndStartIsAfter(owner, now).stream()
-                .map(BookingMapper::toBookingDtoBack).collect(Collectors.toList());
+    public List<BookingDtoBack> getBookings(Long userId, Role role, State state, Long from, Long size) {
+        if (!userRepository.existsById(userId)) {
+            throw new ObjectNotFoundException("User not found");
+        }
+        Pageable page = size == null || size <= 0 ? Pageable.unpaged()
+                : PageRequest.of(from.intValue() / size.intValue(), size.intValue());
+        return bookingRepository.findBookings(userId, role, state, LocalDateTime.now(), null, page);
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Override
-    public List<BookingDtoBack> getBookingOwnerPast(Long owner, LocalDateTime now) {
-        return bookingRepository.findByOwnerAndEndIsBefore(owner, now).stream()
-                .map(BookingMapper::toBookingDtoBack).collect(Collectors.toList());
+    public BookingPage getBookingsPage(Long userId, Role role, State state, String cursor, int size) {
+        if (!userRepository.existsById(userId)) {
+            throw new ObjectNotFoundException("User not found");
+        }
+        Long afterId = cursor == null ? null : BookingCursor.decode(cursor).getId();
+        List<BookingDtoBack> bookings = bookingRepository.findBookings(userId, role, state, LocalDateTime.now(), afterId,
+                PageRequest.of(0, size + 1));
+        String next = null;
+        if (bookings.size() > size) {
+            bookings = bookings.subList(0, size);
+            next = new BookingCursor(bookings.get(size - 1).getId()).encode();
+        }
+        return new BookingPage(bookings, next);
     }
 
-    @Transactional
     @Override
-    public List<BookingDtoBack> getBookingOwnerCurrent(Long owner, LocalDateTime now) {
-        return bookingRepository.findByOwner_IdAndEndIsAfterAndStartIsBeforeOrderByIdAsc(owner, now).stream()
-                .map(BookingMapper::toBookingDtoBack).collect(Collectors.toList());
+    public BookingDtoBack bookingUpdate(Long bookingId, Long userId, Status status) {
+        Long itemId = bookingRepository.findItemIdById(bookingId).orElseThrow(() -> new ObjectNotFoundException("Booking not found"));
+        return sequencer.submit(itemId, () -> updateStatus(bookingId, userId, status));
     }
 
-
-    @Transactional
-    @Override
-    public BookingDtoBack bookingUpdate(Long bookingId, Long userId, Status status) {
+    private BookingDtoBack updateStatus(Long bookingId, Long userId, Status status) {
         userRepository.findById(userId).orElseThrow(() -> new ObjectNotFoundException("User not found"));
-        Booking booking = bookingRepository.findById(bookingId).orElseThrow(() -> new ObjectNotFoundException("Booking not found"));
+        Booking booking = bookingRepository.findByIdFetchItemAndBooker(bookingId).orElseThrow(() -> new ObjectNotFoundException("Booking not found"));
         if (!booking.getItem().getOwner().getId().equals(userId)) {
             throw new ObjectNotFoundException("Пользователь не является хозяином вещи, отклонено изменение статуса.");
         }
         if (booking.getStatus().equals(Status.APPROVED)) {
             throw new ValidationException("Статус approved,повторные разрешения не требуются");
         }
+        // a reactivated booking must not overlap an active one, an approved one must not overlap another approved one
+        if (status == Status.APPROVED || ACTIVE.contains(status) && !ACTIVE.contains(booking.getStatus())) {
+            List<Status> conflicting = ACTIVE.contains(booking.getStatus()) ? List.of(Status.APPROVED) : ACTIVE;
+            itemRepository.findByIdForUpdate(booking.getItem().getId());
+            if (overlaps(booking.getItem().getId(), conflicting, booking.getStart(), booking.getEnd())) {
+                throw new ValidationException("Вещь уже забронирована на это время");
+            }
+        }
         booking.setStatus(status);
         bookingRepository.save(booking);
+        bookingTimeline.update(booking);
         return BookingMapper.toBookingDtoBack(booking);
     }
-
-    @Transactional
-    @Override
-    public List<BookingDtoBack> getBookingOwnerStatus(Long userId, Status status) {
-        userRepository.findById(userId).orElseThrow(() -> new ObjectNotFoundException("User not found"));
-        return bookingRepository.findByOwnerAndStatus(userId, status).stream().map(BookingMapper::toBookingDtoBack).collect(Collectors.toList());
-    }
-
-    @Transactional
-    @Override
-    public List<BookingDtoBack> getBookingBookerStatus(Long userId, Status status) {
-        userRepository.findById(userId).orElseThrow(() -> new ObjectNotFoundException("User not found"));
-        return bookingRepository.findByBooker_IdAndStatus(userId, status).stream().map(BookingMapper::toBookingDtoBack).collect(Collectors.toList());
-    }
 }
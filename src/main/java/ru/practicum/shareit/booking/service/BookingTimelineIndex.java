@@ -0,0 +1,105 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingDtoForItem;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.util.AfterCommit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Approved bookings of every item, ordered by start time, for last/next lookups on the item page.
+ * A rebuild fills a new map and swaps it in, replaying changes that were applied while it was loading.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingTimelineIndex {
+    private static final Comparator<BookingDtoForItem> ORDER = Comparator.comparing(BookingDtoForItem::getStart)
+            .thenComparing(BookingDtoForItem::getId);
+
+    private final BookingRepository bookingRepository;
+    private volatile Map<Long, NavigableSet<BookingDtoForItem>> timelines = new ConcurrentHashMap<>();
+    private List<Booking> pending;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (this) {
+            pending = new ArrayList<>();
+        }
+        List<Booking> bookings = bookingRepository.findByStatusFetchItemAndBooker(Status.APPROVED);
+        Map<Long, NavigableSet<BookingDtoForItem>> rebuilt = new ConcurrentHashMap<>();
+        bookings.forEach(booking -> apply(rebuilt, booking));
+        synchronized (this) {
+            pending.forEach(booking -> apply(rebuilt, booking));
+            pending = null;
+            timelines = rebuilt;
+        }
+        log.info("Индекс бронирований построен, подтвержденных бронирований: " + bookings.size());
+    }
+
+    /**
+     * Adds the booking if it is approved and removes it otherwise. Inside a transaction the change
+     * is applied only after commit, so rolled back bookings never reach the index.
+     */
+    public void update(Booking booking) {
+        AfterCommit.run(() -> apply(booking));
+    }
+
+    public BookingDtoForItem findLast(Long itemId, LocalDateTime now) {
+        NavigableSet<BookingDtoForItem> timeline = timelines.get(itemId);
+        return timeline == null ? null : copy(timeline.lower(probe(now, Long.MIN_VALUE)));
+    }
+
+    public BookingDtoForItem findNext(Long itemId, LocalDateTime now) {
+        NavigableSet<BookingDtoForItem> timeline = timelines.get(itemId);
+        return timeline == null ? null : copy(timeline.higher(probe(now, Long.MAX_VALUE)));
+    }
+
+    private synchronized void apply(Booking booking) {
+        apply(timelines, booking);
+        if (pending != null) {
+            pending.add(booking);
+        }
+    }
+
+    private static void apply(Map<Long, NavigableSet<BookingDtoForItem>> timelines, Booking booking) {
+        BookingDtoForItem entry = BookingMapper.toBookingDtoForItem(booking);
+        if (booking.getStatus() == Status.APPROVED) {
+            timelines.compute(booking.getItem().getId(), (k, timeline) -> {
+                NavigableSet<BookingDtoForItem> result = timeline == null ? new ConcurrentSkipListSet<>(ORDER) : timeline;
+                result.remove(entry);
+                result.add(entry);
+                return result;
+            });
+        } else {
+            timelines.computeIfPresent(booking.getItem().getId(), (k, timeline) -> {
+                timeline.remove(entry);
+                return timeline.isEmpty() ? null : timeline;
+            });
+        }
+    }
+
+    private static BookingDtoForItem probe(LocalDateTime start, Long id) {
+        return new BookingDtoForItem(id, start, null, null, null);
+    }
+
+    private static BookingDtoForItem copy(BookingDtoForItem entry) {
+        return entry == null ? null : new BookingDtoForItem(entry.getId(), entry.getStart(), entry.getEnd(),
+                entry.getBookerId(), entry.getStatus());
+    }
+}
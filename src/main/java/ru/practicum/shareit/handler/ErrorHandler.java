@@ -5,6 +5,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.practicum.shareit.handler.exception.ObjectNotFoundException;
+import ru.practicum.shareit.handler.exception.ServiceUnavailableException;
 import ru.practicum.shareit.handler.exception.ValidationException;
 
 @RestControllerAdvice
@@ -24,4 +25,12 @@ public class ErrorHandler {
                 e.getMessage()
         );
     }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleServiceUnavailableException(final ServiceUnavailableException e) {
+        return new ErrorResponse(
+                e.getMessage()
+        );
+    }
 }
@@ -1,27 +1,45 @@
 package ru.practicum.shareit.item.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.comment.dto.CommentDto;
 import ru.practicum.shareit.handler.exception.ValidationException;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemImportResult;
+import ru.practicum.shareit.item.dto.ItemSearchPage;
 import ru.practicum.shareit.item.service.ItemService;
-import ru.practicum.shareit.user.service.UserService;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Slf4j
 @RestController
 @RequestMapping("/items")
 @RequiredArgsConstructor
 public class ItemController {
+    private static final int SEARCH_PAGE_SIZE = 20;
+    private static final int MAX_SUGGEST_SIZE = 50;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NDJSON = "application/x-ndjson";
+
     private final ItemService itemService;
-    private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<ItemDto> add(@RequestHeader Map<String, String> headers,
@@ -45,11 +63,32 @@ public class ItemController {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
 
-        userService.getUser(userId);
         log.info("Предмет добавление.");
         return new ResponseEntity<>(itemService.addNewItem(userId, item), HttpStatus.OK);
     }
 
+    @PostMapping(value = "/batch", consumes = "application/json")
+    public List<ItemImportResult> addBatch(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                           @RequestBody List<JsonNode> rows) {
+        List<ItemDto> items = new ArrayList<>(rows.size());
+        for (JsonNode row : rows) {
+            items.add(readItem(row));
+        }
+        log.info("Пакетное добавление предметов: " + items.size());
+        return itemService.addItems(userId, items);
+    }
+
+    @PostMapping(value = "/batch", consumes = NDJSON)
+    public List<ItemImportResult> addBatchNdjson(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                 HttpServletRequest request) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            Stream<ItemDto> items = reader.lines().filter(x -> !x.isBlank()).map(this::readItem);
+            List<ItemImportResult> results = itemService.addItems(userId, items::iterator);
+            log.info("Пакетное добавление предметов: " + results.size());
+            return results;
+        }
+    }
+
     @GetMapping
     public List<ItemDto> get(@RequestHeader("X-Sharer-User-Id") Long userId) {
         return itemService.getItems(userId);
@@ -82,21 +121,60 @@ public class ItemController {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
 
-        userService.getUser(userId).getId();
-        if (!itemService.getItem(itemId, userId).getOwner().equals(userId)) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-
         log.info("Предмет с id: " + itemId + " обновление.");
         return new ResponseEntity<>(itemService.updateItem(fields, userId, itemId), HttpStatus.OK);
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<ItemDto>> searchByNameOrDescription(@Valid @RequestParam(name = "text") String text) {
+    public ResponseEntity<List<ItemDto>> searchByNameOrDescription(@Valid @RequestParam(name = "text") String text,
+                                                                   @RequestParam(name = "fuzzy", defaultValue = "false") boolean fuzzy,
+                                                                   @Valid @RequestParam(name = "size") Optional<Integer> size,
+                                                                   @Valid @RequestParam(name = "cursor") Optional<String> cursor) {
         log.info("Поиск предмета по названию:" + text);
+        if (size.isPresent() || cursor.isPresent()) {
+            if (size.isPresent() && size.get() <= 0) {
+                log.info("Значение size должно быть больше нуля");
+                throw new ValidationException("search: Введите положительный size.");
+            }
+            ItemSearchPage page = itemService.searchPage(text, fuzzy, cursor.orElse(null), size.orElse(SEARCH_PAGE_SIZE));
+            HttpHeaders responseHeaders = new HttpHeaders();
+            if (page.getNext() != null) {
+                responseHeaders.set(NEXT_CURSOR_HEADER, page.getNext());
+            }
+            return new ResponseEntity<>(page.getItems(), responseHeaders, HttpStatus.OK);
+        }
+        if (fuzzy) {
+            return new ResponseEntity<>(itemService.searchFuzzy(text), HttpStatus.OK);
+        }
         return new ResponseEntity<>(itemService.searchByNameOrDescription(text), HttpStatus.OK);
     }
 
+    @GetMapping("/suggest")
+    public ResponseEntity<List<String>> suggest(@RequestParam(name = "prefix") String prefix,
+                                                @RequestParam(name = "size", defaultValue = "10") int size) {
+        if (size <= 0 || size > MAX_SUGGEST_SIZE) {
+            log.info("Значение size должно быть от 1 до " + MAX_SUGGEST_SIZE);
+            throw new ValidationException("suggest: Введите size от 1 до " + MAX_SUGGEST_SIZE + ".");
+        }
+        return new ResponseEntity<>(itemService.suggest(prefix, size), HttpStatus.OK);
+    }
+
+    private ItemDto readItem(String row) {
+        try {
+            return readItem(objectMapper.readTree(row));
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private ItemDto readItem(JsonNode row) {
+        try {
+            return objectMapper.treeToValue(row, ItemDto.class);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     @PostMapping("/{itemId}/comment")
     public CommentDto addComment(@PathVariable("itemId") Long itemId, @RequestHeader("X-Sharer-User-Id") Long userId,
                                  @Valid @RequestBody CommentDto commentDto) {
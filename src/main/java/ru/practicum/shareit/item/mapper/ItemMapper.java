@@ -40,6 +40,20 @@ public class ItemMapper {
     }
 
 
+    public static ItemDto copyItemDto(ItemDto itemDto) {
+        return new ItemDto(
+                itemDto.getId(),
+                itemDto.getName(),
+                itemDto.getDescription(),
+                itemDto.getAvailable(),
+                itemDto.getOwner(),
+                itemDto.getRequestId(),
+                itemDto.getLastBooking(),
+                itemDto.getNextBooking(),
+                itemDto.getComments() == null ? new ArrayList<>() : new ArrayList<>(itemDto.getComments())
+        );
+    }
+
     public static List<ItemDto> toItemDto(Iterable<Item> items) {
         List<ItemDto> dtos = new ArrayList<>();
         for (Item item : items) {
@@ -0,0 +1,73 @@
+package ru.practicum.shareit.item.mapper;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.handler.exception.ValidationException;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Applies PATCH /items/{itemId} bodies to an item. The setter of every patchable field is bound once,
+ * the whole body is checked and converted before the item is touched, unknown fields are rejected.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class ItemPatcher {
+    private static final Map<String, Function<Object, Consumer<Item>>> FIELDS = Map.of(
+            "name", bind("name", String.class, Item::setName),
+            "description", bind("description", String.class, Item::setDescription),
+            "available", bind("available", Boolean.class, Item::setAvailable),
+            "requestId", value -> item -> item.setRequestId(toLong("requestId", value))
+    );
+
+    public static Item apply(Map<String, Object> fields, Item item) {
+        List<Consumer<Item>> changes = new ArrayList<>(fields.size());
+        fields.forEach((k, v) -> {
+            if ("id".equals(k)) {
+                if (v != null && !item.getId().equals(toLong(k, v))) {
+                    throw new ValidationException("Поле id не совпадает с itemId");
+                }
+                return;
+            }
+            Function<Object, Consumer<Item>> field = FIELDS.get(k);
+            if (field == null) {
+                throw new ValidationException("Поле " + k + " не может быть изменено");
+            }
+            changes.add(field.apply(v));
+        });
+        changes.forEach(x -> x.accept(item));
+        return item;
+    }
+
+    private static <T> Function<Object, Consumer<Item>> bind(String name, Class<T> type, BiConsumer<Item, T> setter) {
+        return value -> {
+            if (!type.isInstance(value)) {
+                throw new ValidationException("Поле " + name + " должно иметь тип " + type.getSimpleName());
+            }
+            T typed = type.cast(value);
+            return item -> setter.accept(item, typed);
+        };
+    }
+
+    private static Long toLong(String name, Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException e) {
+                throw new ValidationException("Поле " + name + " должно быть числом");
+            }
+        }
+        throw new ValidationException("Поле " + name + " должно быть числом");
+    }
+}
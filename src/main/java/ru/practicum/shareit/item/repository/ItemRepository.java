@@ -2,21 +2,49 @@ package ru.practicum.shareit.item.repository;
 
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.dto.RequestItemDto;
 
+import javax.persistence.LockModeType;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Long> {
 
-    @Query("select i  from Item as i left join i.owner as u where u.id = ?1 order by i.id")
+    @Query("select i from Item as i where i.owner.id = ?1 order by i.id")
     List<Item> findByOwnerOrderById(Long owner);
 
-    @Query("select u  from Item u  where lower(u.name)  LIKE  lower( concat('%',concat(?1, '%')))" +
-            " or lower(u.description)  LIKE  lower( concat('%',concat(?1, '%'))) and u.available = true ")
+    Optional<Item> findByIdAndOwner_Id(Long itemId, Long ownerId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from Item as i where i.id = ?1")
+    Optional<Item> findByIdForUpdate(Long itemId);
+
+    @Query(value = "select * from items as i where i.available = true" +
+            " and (i.name_lower like concat('%', ?1, '%') or i.description_lower like concat('%', ?1, '%'))",
+            nativeQuery = true)
     List<Item> searchByNameOrDescription(String text);
 
+    @Query(value = "select * from items as i where i.available = true" +
+            " and (i.name_lower like concat('%', ?1, '%') or i.description_lower like concat('%', ?1, '%'))" +
+            " and i.id > ?2 order by i.id limit ?3",
+            nativeQuery = true)
+    List<Item> searchByNameOrDescriptionAfter(String text, Long afterId, int limit);
+
     List<Item> findByRequestId(Long requestId);
+
+    @Query("select new ru.practicum.shareit.request.dto.RequestItemDto(i.id, i.name, i.description, i.available, " +
+            "i.requestId) from Item as i where i.requestId in ?1 order by i.requestId, i.id")
+    List<RequestItemDto> findByRequestIdIn(Collection<Long> requestIds);
+
+    @Query("select new ru.practicum.shareit.request.dto.RequestItemDto(i.id, i.name, i.description, i.available, " +
+            "i.requestId) from Item as i where i.requestId in " +
+            "(select r.id from ItemRequest as r where r.requestor.id <> ?1) order by i.requestId, i.id")
+    List<RequestItemDto> findByRequestOfOtherUsers(Long userId);
 }
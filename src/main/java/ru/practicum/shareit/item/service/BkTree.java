@@ -0,0 +1,94 @@
+package ru.practicum.shareit.item.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Burkhard-Keller tree over terms with the Levenshtein metric. Adding is serialized, lookups run
+ * without locks and only visit subtrees that can contain terms within the requested distance.
+ * Terms cannot be removed, owners rebuild the tree once too many of them are gone.
+ */
+class BkTree {
+    private volatile Node root;
+    private volatile int size;
+
+    synchronized void add(String term) {
+        if (root == null) {
+            root = new Node(term);
+            size = 1;
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(node.term, term);
+            if (distance == 0) {
+                return;
+            }
+            Node child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new Node(term));
+                size++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    Map<String, Integer> search(String query, int maxDistance) {
+        Map<String, Integer> result = new HashMap<>();
+        Node start = root;
+        if (start == null) {
+            return result;
+        }
+        Deque<Node> queue = new ArrayDeque<>();
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            int distance = distance(node.term, query);
+            if (distance <= maxDistance) {
+                result.put(node.term, distance);
+            }
+            node.children.forEach((edge, child) -> {
+                if (edge >= distance - maxDistance && edge <= distance + maxDistance) {
+                    queue.add(child);
+                }
+            });
+        }
+        return result;
+    }
+
+    static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static class Node {
+        private final String term;
+        private final Map<Integer, Node> children = new ConcurrentHashMap<>();
+
+        Node(String term) {
+            this.term = term;
+        }
+    }
+}
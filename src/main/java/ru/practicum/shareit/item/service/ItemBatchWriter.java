@@ -0,0 +1,28 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import java.util.List;
+
+/**
+ * Saves a chunk of imported items in its own transaction. Inserts are flushed before returning,
+ * so a failing row rolls back only its chunk and the caller can retry the rows one by one.
+ */
+@Component
+@RequiredArgsConstructor
+public class ItemBatchWriter {
+    private final ItemRepository repository;
+    private final ItemSearchIndex searchIndex;
+
+    @Transactional
+    public List<Item> saveAll(List<Item> items) {
+        List<Item> saved = repository.saveAll(items);
+        repository.flush();
+        saved.forEach(searchIndex::index);
+        return saved;
+    }
+}
@@ -0,0 +1,52 @@
+package ru.practicum.shareit.item.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Results of /items/search keyed by the normalized query and the catalog version of the search index.
+ * Any item change bumps the version, so older entries are never read again and are evicted by size.
+ * Concurrent misses for the same key wait for a single computation.
+ */
+@Component
+public class ItemSearchCache {
+    private final ItemSearchIndex searchIndex;
+    private final Cache<Key, List<ItemDto>> cache;
+
+    public ItemSearchCache(ItemSearchIndex searchIndex, MeterRegistry meterRegistry,
+                           @Value("${shareit.search.cache-size:10000}") long maximumSize) {
+        this.searchIndex = searchIndex;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "items.search");
+    }
+
+    public List<ItemDto> get(String text, Function<String, List<ItemDto>> loader) {
+        String query = normalize(text);
+        return cache.get(new Key(query, searchIndex.version()), k -> List.copyOf(loader.apply(query)));
+    }
+
+    static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Key {
+        private final String query;
+        private final long version;
+    }
+}
@@ -0,0 +1,583 @@
+package ru.practicum.shareit.item.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemMatch;
+import ru.practicum.shareit.item.dto.ItemSearchPage;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.util.AfterCommit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index over names and descriptions of available items. Plain search keeps the contract of the
+ * database search: the whole query has to occur in the name or the description, also inside a word. Candidates
+ * come from trigram postings and are checked against the text; results are ranked by where the query occurs
+ * and how its words match the item terms. Term postings serve fuzzy search and request matching.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemSearchIndex {
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int EXACT_MATCH_FACTOR = 2;
+    private static final int MATCH_MIN_LENGTH = 4;
+    private static final int MATCH_ENDING_LENGTH = 2;
+    private static final int GRAM_LENGTH = 3;
+    private static final long RANKED_MATCHES = 1_000_000;
+    private static final int SHORT_PREFIX_LENGTH = 2;
+    private static final Comparator<SuggestedName> SUGGESTION_RANK = Comparator.<SuggestedName>comparingInt(x -> -x.items)
+            .thenComparingInt(x -> x.name.length())
+            .thenComparing(x -> x.name);
+    private static final String[] TRANSLITERATION = {"a", "b", "v", "g", "d", "e", "zh", "z", "i", "y", "k", "l",
+            "m", "n", "o", "p", "r", "s", "t", "u", "f", "kh", "ts", "ch", "sh", "shch", "", "y", "", "e", "yu", "ya"};
+
+    private final ItemRepository repository;
+    private final ConcurrentSkipListMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<Long>> grams = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> namePostings = new ConcurrentHashMap<>();
+    private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> transliterations = new ConcurrentHashMap<>();
+    private volatile BkTree nameTerms = new BkTree();
+    private final ConcurrentSkipListMap<String, Set<String>> nameWords = new ConcurrentSkipListMap<>();
+    private final Map<String, SuggestedName> suggestedNames = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<SuggestedName>> namesByShortPrefix = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<SuggestedName>> namesByLeadingShortPrefix = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final Cache<RankingKey, Ranking> rankings = Caffeine.newBuilder()
+            .maximumWeight(RANKED_MATCHES)
+            .<RankingKey, Ranking>weigher((key, ranking) -> ranking.ids.length + 1)
+            .build();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        synchronized (this) {
+            postings.clear();
+            grams.clear();
+            namePostings.clear();
+            documents.clear();
+            transliterations.clear();
+            nameTerms = new BkTree();
+            nameWords.clear();
+            suggestedNames.clear();
+            namesByShortPrefix.clear();
+            namesByLeadingShortPrefix.clear();
+            repository.findAll().forEach(this::apply);
+            version.incrementAndGet();
+        }
+        log.info("Поисковый индекс построен, доступных предметов: " + documents.size());
+    }
+
+    /**
+     * Indexes the current state of the item: available items are (re)indexed, unavailable ones are removed.
+     * Inside a transaction the change is applied only after commit.
+     */
+    public void index(Item item) {
+        ItemDto itemDto = ItemMapper.toItemDto(item);
+        AfterCommit.run(() -> apply(itemDto));
+    }
+
+    /**
+     * Catalog version, incremented after every change is applied to the index.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    public List<ItemDto> search(String text) {
+        return searchPage(text, false, null, Integer.MAX_VALUE).getItems();
+    }
+
+    /**
+     * Typo tolerant search: every query token must be within a bounded edit distance of a name term.
+     * Terms are compared in Latin transliteration, so "drel" finds "дрель".
+     */
+    public List<ItemDto> searchFuzzy(String text) {
+        return searchPage(text, true, null, Integer.MAX_VALUE).getItems();
+    }
+
+    /**
+     * One page of search results ordered by relevance and id, starting right after the cursor.
+     * Matches are scored and sorted once per query and catalog version, so a further page only
+     * looks up the cursor and copies its items.
+     */
+    public ItemSearchPage searchPage(String text, boolean fuzzy, SearchCursor after, int size) {
+        if (after != null) {
+            after.checkQuery(text, fuzzy);
+        }
+        List<String> tokens = tokenize(text).stream().distinct().collect(Collectors.toList());
+        if (fuzzy ? tokens.isEmpty() : normalize(text).isEmpty()) {
+            return new ItemSearchPage(new ArrayList<>(), null);
+        }
+        Ranking ranking = rankings.get(new RankingKey(normalize(text), fuzzy, version.get()),
+                key -> Ranking.of(fuzzy ? scoreFuzzy(tokens) : score(key.query, tokens)));
+        int from = after == null ? 0 : ranking.indexAfter(after);
+        int to = (int) Math.min(ranking.ids.length, (long) from + size);
+        List<ItemDto> items = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            Document document = documents.get(ranking.ids[i]);
+            if (document != null) {
+                items.add(ItemMapper.copyItemDto(document.item));
+            }
+        }
+        String next = null;
+        if (to < ranking.ids.length) {
+            next = new SearchCursor(SearchCursor.queryHash(text, fuzzy), ranking.scores[to - 1], ranking.ids[to - 1])
+                    .encode();
+        }
+        return new ItemSearchPage(items, next);
+    }
+
+    /**
+     * Available items that share words with a free text such as a request description, best matches first.
+     * Unlike search, an item needs only one of the words. Words shorter than four letters are skipped and
+     * longer ones lose their last two letters, down to four, so "дрелью" and "щеткой" find "дрель" and "щетка".
+     * Items of the excluded owner are skipped.
+     */
+    public List<ItemMatch> match(String text, Long excludedOwner, int limit) {
+        List<String> stems = tokenize(text).stream()
+                .filter(x -> x.length() >= MATCH_MIN_LENGTH)
+                .map(x -> x.substring(0, Math.max(MATCH_MIN_LENGTH, x.length() - MATCH_ENDING_LENGTH)))
+                .distinct()
+                .collect(Collectors.toList());
+        Set<Long> candidates = new HashSet<>();
+        stems.forEach(stem -> postings.subMap(stem, true, stem + Character.MAX_VALUE, true).values()
+                .forEach(candidates::addAll));
+        Comparator<ItemMatch> order = Comparator.comparingInt(ItemMatch::getScore).reversed()
+                .thenComparing(x -> x.getItem().getId());
+        PriorityQueue<ItemMatch> best = new PriorityQueue<>(order.reversed());
+        for (Long id : candidates) {
+            Document document = documents.get(id);
+            if (document == null || document.item.getOwner().equals(excludedOwner)) {
+                continue;
+            }
+            best.add(new ItemMatch(document.item, document.score(stems)));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<ItemMatch> matches = new ArrayList<>(best);
+        matches.sort(order);
+        matches.forEach(x -> x.setItem(ItemMapper.copyItemDto(x.getItem())));
+        return matches;
+    }
+
+    /**
+     * Names of available items that start with the prefix, or that have a word starting with it. Names
+     * starting with it come first, then names shared by more items, then shorter names. A prefix of one or
+     * two letters is served from names kept in rank order per such prefix, so the first keystrokes read
+     * only about limit names instead of most of the catalog.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        List<String> tokens = tokenize(prefix);
+        if (tokens.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        if (tokens.size() == 1 && tokens.get(0).length() <= SHORT_PREFIX_LENGTH) {
+            return suggestShort(tokens.get(0), limit);
+        }
+        String phrase = " " + String.join(" ", tokens);
+        Collection<String> candidates;
+        if (tokens.size() == 1) {
+            candidates = new HashSet<>();
+            nameWords.subMap(tokens.get(0), true, tokens.get(0) + Character.MAX_VALUE, true).values()
+                    .forEach(candidates::addAll);
+        } else {
+            String word = tokens.subList(0, tokens.size() - 1).stream()
+                    .max(Comparator.comparingInt(String::length))
+                    .orElseThrow();
+            candidates = nameWords.getOrDefault(word, Set.of());
+        }
+        Comparator<SuggestedName> order = Comparator.<SuggestedName>comparingInt(x -> x.words.startsWith(phrase) ? 0 : 1)
+                .thenComparing(SUGGESTION_RANK);
+        PriorityQueue<SuggestedName> best = new PriorityQueue<>(order.reversed());
+        for (String name : candidates) {
+            SuggestedName suggested = suggestedNames.get(name);
+            if (suggested == null || !suggested.words.contains(phrase)) {
+                continue;
+            }
+            best.add(suggested);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<SuggestedName> sorted = new ArrayList<>(best);
+        sorted.sort(order);
+        return sorted.stream().map(x -> x.name).collect(Collectors.toList());
+    }
+
+    /**
+     * Takes the best names starting with the prefix, then tops up with the best names that have another
+     * word starting with it. Names of the first kind met in the second pass are fewer than limit.
+     */
+    private List<String> suggestShort(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        for (SuggestedName suggested : namesByLeadingShortPrefix.getOrDefault(prefix, Collections.emptyNavigableSet())) {
+            if (result.size() == limit) {
+                return result;
+            }
+            result.add(suggested.name);
+        }
+        for (SuggestedName suggested : namesByShortPrefix.getOrDefault(prefix, Collections.emptyNavigableSet())) {
+            if (result.size() == limit) {
+                break;
+            }
+            if (!suggested.words.startsWith(" " + prefix)) {
+                result.add(suggested.name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Items whose name or description contains the query. A query shorter than a trigram is checked
+     * against every available item.
+     */
+    private Map<Long, Integer> score(String query, List<String> tokens) {
+        Collection<Long> candidates = documents.keySet();
+        if (query.length() >= GRAM_LENGTH) {
+            List<Set<Long>> lists = new ArrayList<>();
+            for (String gram : grams(query)) {
+                Set<Long> ids = grams.get(gram);
+                if (ids == null) {
+                    return new HashMap<>();
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            Set<Long> matches = new HashSet<>(lists.get(0));
+            lists.subList(1, lists.size()).forEach(matches::retainAll);
+            candidates = matches;
+        }
+        Map<Long, Integer> scores = new HashMap<>();
+        for (Long id : candidates) {
+            Document document = documents.get(id);
+            if (document == null) {
+                continue;
+            }
+            int score = (document.name.contains(query) ? NAME_WEIGHT : 0)
+                    + (document.description.contains(query) ? DESCRIPTION_WEIGHT : 0);
+            if (score > 0) {
+                scores.put(id, score + document.score(tokens));
+            }
+        }
+        return scores;
+    }
+
+    private Map<Long, Integer> scoreFuzzy(List<String> tokens) {
+        Map<Long, Integer> scores = null;
+        for (String token : tokens) {
+            String key = transliterate(token);
+            int maxDistance = maxDistance(key);
+            Map<Long, Integer> matches = new HashMap<>();
+            nameTerms.search(key, maxDistance).forEach((match, distance) ->
+                    transliterations.getOrDefault(match, Set.of()).forEach(term ->
+                            namePostings.getOrDefault(term, Set.of()).forEach(id ->
+                                    matches.merge(id, maxDistance + 1 - distance, Math::max))));
+            if (scores == null) {
+                scores = matches;
+            } else {
+                scores.keySet().retainAll(matches.keySet());
+                scores.replaceAll((id, score) -> score + matches.get(id));
+            }
+            if (scores.isEmpty()) {
+                return scores;
+            }
+        }
+        return scores;
+    }
+
+    static String transliterate(String term) {
+        StringBuilder result = new StringBuilder(term.length());
+        for (char c : term.toCharArray()) {
+            if (c >= 'а' && c <= 'я') {
+                result.append(TRANSLITERATION[c - 'а']);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private static int maxDistance(String key) {
+        if (key.length() <= 2) {
+            return 0;
+        }
+        return key.length() == 3 ? 1 : 2;
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            result.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return result;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).replace('ё', 'е').split("[^\\p{L}\\p{N}]+"))
+                .filter(x -> !x.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    private void apply(Item item) {
+        apply(ItemMapper.toItemDto(item));
+    }
+
+    private synchronized void apply(ItemDto itemDto) {
+        applyChange(itemDto);
+        version.incrementAndGet();
+    }
+
+    private void applyChange(ItemDto itemDto) {
+        Document previous = documents.remove(itemDto.getId());
+        if (previous != null) {
+            removeSuggestedName(previous.item.getName());
+            previous.terms.keySet().forEach(term -> postings.computeIfPresent(term, (k, ids) -> {
+                ids.remove(itemDto.getId());
+                return ids.isEmpty() ? null : ids;
+            }));
+            previous.grams().forEach(gram -> grams.computeIfPresent(gram, (k, ids) -> {
+                ids.remove(itemDto.getId());
+                return ids.isEmpty() ? null : ids;
+            }));
+            tokenize(previous.item.getName()).stream().distinct()
+                    .forEach(term -> removeNameTerm(term, itemDto.getId()));
+        }
+        if (!Boolean.TRUE.equals(itemDto.getAvailable())) {
+            return;
+        }
+        Map<String, Integer> terms = new HashMap<>();
+        tokenize(itemDto.getName()).forEach(term -> {
+            terms.merge(term, NAME_WEIGHT, Integer::sum);
+            namePostings.computeIfAbsent(term, k -> ConcurrentHashMap.newKeySet()).add(itemDto.getId());
+            String key = transliterate(term);
+            transliterations.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(term);
+            nameTerms.add(key);
+        });
+        tokenize(itemDto.getDescription()).forEach(term -> terms.merge(term, DESCRIPTION_WEIGHT, Integer::sum));
+        terms.keySet().forEach(term -> postings.computeIfAbsent(term, k -> ConcurrentHashMap.newKeySet())
+                .add(itemDto.getId()));
+        addSuggestedName(itemDto.getName());
+        Document document = new Document(ItemMapper.copyItemDto(itemDto), terms,
+                normalize(itemDto.getName()), normalize(itemDto.getDescription()));
+        document.grams().forEach(gram -> grams.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet())
+                .add(itemDto.getId()));
+        documents.put(itemDto.getId(), document);
+    }
+
+    /**
+     * Counts one more item with the name and, for a new name, files it once under each of its words.
+     */
+    private void addSuggestedName(String name) {
+        SuggestedName suggested = suggestedNames.get(name);
+        if (suggested != null) {
+            unrankShortPrefixes(suggested);
+            suggested.items++;
+            rankShortPrefixes(suggested);
+            return;
+        }
+        List<String> words = tokenize(name);
+        suggested = new SuggestedName(name, " " + String.join(" ", words));
+        suggestedNames.put(name, suggested);
+        words.forEach(word -> nameWords.computeIfAbsent(word, k -> ConcurrentHashMap.newKeySet()).add(name));
+        rankShortPrefixes(suggested);
+    }
+
+    private void removeSuggestedName(String name) {
+        SuggestedName suggested = suggestedNames.get(name);
+        if (suggested == null) {
+            return;
+        }
+        unrankShortPrefixes(suggested);
+        if (--suggested.items > 0) {
+            rankShortPrefixes(suggested);
+            return;
+        }
+        suggestedNames.remove(name);
+        tokenize(name).forEach(word -> nameWords.computeIfPresent(word, (k, names) -> {
+            names.remove(name);
+            return names.isEmpty() ? null : names;
+        }));
+    }
+
+    /**
+     * Files the name under the one and two letter prefixes of its words. The sets are ordered by the item
+     * count, so a name is taken out before its count changes and put back after.
+     */
+    private void rankShortPrefixes(SuggestedName suggested) {
+        List<String> words = tokenize(suggested.name);
+        shortPrefixes(words.isEmpty() ? words : words.subList(0, 1)).forEach(prefix -> namesByLeadingShortPrefix
+                .computeIfAbsent(prefix, k -> new ConcurrentSkipListSet<>(SUGGESTION_RANK)).add(suggested));
+        shortPrefixes(words).forEach(prefix -> namesByShortPrefix
+                .computeIfAbsent(prefix, k -> new ConcurrentSkipListSet<>(SUGGESTION_RANK)).add(suggested));
+    }
+
+    private void unrankShortPrefixes(SuggestedName suggested) {
+        List<String> words = tokenize(suggested.name);
+        shortPrefixes(words.isEmpty() ? words : words.subList(0, 1)).forEach(prefix -> namesByLeadingShortPrefix.computeIfPresent(prefix, (k, names) -> {
+            names.remove(suggested);
+            return names.isEmpty() ? null : names;
+        }));
+        shortPrefixes(words).forEach(prefix -> namesByShortPrefix.computeIfPresent(prefix, (k, names) -> {
+            names.remove(suggested);
+            return names.isEmpty() ? null : names;
+        }));
+    }
+
+    private static Set<String> shortPrefixes(List<String> words) {
+        Set<String> prefixes = new HashSet<>();
+        for (String word : words) {
+            for (int length = 1; length <= Math.min(SHORT_PREFIX_LENGTH, word.length()); length++) {
+                prefixes.add(word.substring(0, length));
+            }
+        }
+        return prefixes;
+    }
+
+    /**
+     * Drops the item from the postings of a name term. A term no item name has any more leaves the
+     * transliterations, and the fuzzy tree is rebuilt once it holds more removed keys than live ones.
+     */
+    private void removeNameTerm(String term, Long itemId) {
+        if (namePostings.computeIfPresent(term, (k, ids) -> {
+            ids.remove(itemId);
+            return ids.isEmpty() ? null : ids;
+        }) != null) {
+            return;
+        }
+        transliterations.computeIfPresent(transliterate(term), (k, terms) -> {
+            terms.remove(term);
+            return terms.isEmpty() ? null : terms;
+        });
+        if (nameTerms.size() > 2 * transliterations.size()) {
+            BkTree tree = new BkTree();
+            transliterations.keySet().forEach(tree::add);
+            nameTerms = tree;
+        }
+    }
+
+    int fuzzyTermCount() {
+        return nameTerms.size();
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class RankingKey {
+        private final String query;
+        private final boolean fuzzy;
+        private final long version;
+    }
+
+    /**
+     * Matches of one query sorted by score (descending) and id.
+     */
+    @RequiredArgsConstructor
+    private static class Ranking {
+        private final long[] ids;
+        private final int[] scores;
+
+        static Ranking of(Map<Long, Integer> scores) {
+            List<Map.Entry<Long, Integer>> sorted = new ArrayList<>(scores.entrySet());
+            sorted.sort(Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+            Ranking ranking = new Ranking(new long[sorted.size()], new int[sorted.size()]);
+            for (int i = 0; i < sorted.size(); i++) {
+                ranking.ids[i] = sorted.get(i).getKey();
+                ranking.scores[i] = sorted.get(i).getValue();
+            }
+            return ranking;
+        }
+
+        /**
+         * Index of the first match that comes after the cursor.
+         */
+        int indexAfter(SearchCursor cursor) {
+            int low = 0;
+            int high = ids.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cursor.isBefore(scores[middle], ids[middle])) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static class SuggestedName {
+        private final String name;
+        private final String words;
+        private volatile int items = 1;
+
+        SuggestedName(String name, String words) {
+            this.name = name;
+            this.words = words;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Document {
+        private final ItemDto item;
+        private final Map<String, Integer> terms;
+        private final String name;
+        private final String description;
+
+        Set<String> grams() {
+            Set<String> result = ItemSearchIndex.grams(name);
+            result.addAll(ItemSearchIndex.grams(description));
+            return result;
+        }
+
+        int score(List<String> tokens) {
+            int score = 0;
+            for (String token : tokens) {
+                for (Map.Entry<String, Integer> term : terms.entrySet()) {
+                    if (term.getKey().equals(token)) {
+                        score += term.getValue() * EXACT_MATCH_FACTOR;
+                    } else if (term.getKey().startsWith(token)) {
+                        score += term.getValue();
+                    }
+                }
+            }
+            return score;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package ru.practicum.shareit.item.service;
 
 import ru.practicum.shareit.comment.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemImportResult;
+import ru.practicum.shareit.item.dto.ItemSearchPage;
 
 import java.util.List;
 import java.util.Map;
@@ -12,11 +14,19 @@ public interface ItemService {
 
     ItemDto addNewItem(Long userId, ItemDto item);
 
+    List<ItemImportResult> addItems(Long userId, Iterable<ItemDto> items);
+
     ItemDto getItem(Long itemId, Long userId);
 
     ItemDto updateItem(Map<String, Object> fields, Long userId, Long itemId);
 
     List<ItemDto> searchByNameOrDescription(String text);
 
+    List<ItemDto> searchFuzzy(String text);
+
+    ItemSearchPage searchPage(String text, boolean fuzzy, String cursor, int size);
+
+    List<String> suggest(String prefix, int size);
+
     CommentDto addComment(Long itemId, Long userId, CommentDto commentDto);
 }
@@ -1,13 +1,16 @@
 package ru.practicum.shareit.item.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.ReflectionUtils;
 import ru.practicum.shareit.booking.Status;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingTimelineIndex;
 import ru.practicum.shareit.comment.dto.CommentDto;
 import ru.practicum.shareit.comment.mapper.CommentMapper;
 import ru.practicum.shareit.comment.model.Comment;
@@ -15,13 +18,15 @@ import ru.practicum.shareit.comment.repository.CommentRepository;
 import ru.practicum.shareit.handler.exception.ObjectNotFoundException;
 import ru.practicum.shareit.handler.exception.ValidationException;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemImportResult;
+import ru.practicum.shareit.item.dto.ItemSearchPage;
 import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.mapper.ItemPatcher;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
-import java.lang.reflect.Field;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -29,20 +34,40 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ItemServiceImpl implements ItemService {
+    private static final int IMPORT_CHUNK_SIZE = 500;
+
     private final ItemRepository repository;
     private final UserRepository userRepository;
     private final BookingRepository bookingRepository;
     private final CommentRepository commentRepository;
+    private final BookingTimelineIndex bookingTimeline;
+    private final ItemSearchIndex searchIndex;
+    private final ItemSearchCache searchCache;
+    private final ItemViewCache viewCache;
+    private final ItemBatchWriter batchWriter;
+    @Value("${shareit.search.database:false}")
+    private boolean databaseSearch;
 
     @Transactional(readOnly = true)
     @Override
     public List<ItemDto> getItems(Long owner) {
         List<ItemDto> userItemsDto = ItemMapper.toItemDto(repository.findByOwnerOrderById(owner));
+        if (userItemsDto.isEmpty()) {
+            return userItemsDto;
+        }
+        List<Long> itemIds = userItemsDto.stream().map(ItemDto::getId).collect(Collectors.toList());
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Booking> last = groupByItem(bookingRepository.findLastByItemIds(itemIds, now));
+        Map<Long, Booking> next = groupByItem(bookingRepository.findNextByItemIds(itemIds, now));
         for (ItemDto itemDto : userItemsDto) {
-            setLastNextBookingWithoutStatus(itemDto, itemDto.getId());
+            Booking lastBooking = last.get(itemDto.getId());
+            Booking nextBooking = next.get(itemDto.getId());
+            itemDto.setLastBooking(lastBooking == null ? null : BookingMapper.toBookingDtoForItem(lastBooking));
+            itemDto.setNextBooking(nextBooking == null ? null : BookingMapper.toBookingDtoForItem(nextBooking));
         }
         return userItemsDto;
     }
@@ -53,20 +78,86 @@ public class ItemServiceImpl implements ItemService {
         User user = userRepository.findById(userId).orElseThrow(() -> new ObjectNotFoundException("User not found"));
 
         Item item = repository.save(ItemMapper.toDtoItem(itemDto, user));
+        searchIndex.index(item);
         return ItemMapper.toItemDto(item);
 
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Imports rows as they are read, validating each and saving valid ones in chunks. A failed chunk is
+     * retried row by row, so one bad row reports its own database error and does not sink its neighbours.
+     */
     @Override
-    public ItemDto getItem(Long itemId, Long userId) {
-        ItemDto itemDto = ItemMapper.toItemDto(repository.findById(itemId)
-                .orElseThrow(() -> new ObjectNotFoundException("Item not found")));
-        List<Comment> comments = commentRepository.findByItem_idOrderById(itemId);
-        if (!comments.isEmpty()) {
+    public List<ItemImportResult> addItems(Long userId, Iterable<ItemDto> items) {
+        User user = userRepository.findById(userId).orElseThrow(() -> new ObjectNotFoundException("User not found"));
+        List<ItemImportResult> results = new ArrayList<>();
+        List<Integer> rows = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        List<Item> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        for (ItemDto itemDto : items) {
+            int row = results.size();
+            String error = validateImport(itemDto);
+            results.add(error == null ? null : new ItemImportResult(row, null, error));
+            if (error != null) {
+                continue;
+            }
+            Item item = ItemMapper.toDtoItem(itemDto, user);
+            item.setId(null);
+            rows.add(row);
+            chunk.add(item);
+            if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                saveChunk(rows, chunk, results);
+                rows.clear();
+                chunk.clear();
+            }
+        }
+        saveChunk(rows, chunk, results);
+        return results;
+    }
 
-            itemDto.setComments(comments.stream().map(CommentMapper::toCommentDto).collect(Collectors.toList()));
+    private void saveChunk(List<Integer> rows, List<Item> chunk, List<ItemImportResult> results) {
+        if (chunk.isEmpty()) {
+            return;
         }
+        try {
+            List<Item> saved = batchWriter.saveAll(chunk);
+            for (int i = 0; i < rows.size(); i++) {
+                results.set(rows.get(i), new ItemImportResult(rows.get(i), saved.get(i).getId(), null));
+            }
+        } catch (DataAccessException e) {
+            log.info("Пакет предметов не сохранен, сохранение по одному: " + e.getMessage());
+            for (int i = 0; i < rows.size(); i++) {
+                Item item = chunk.get(i);
+                item.setId(null);
+                try {
+                    results.set(rows.get(i), new ItemImportResult(rows.get(i), batchWriter.saveAll(List.of(item)).get(0).getId(), null));
+                } catch (DataAccessException rowException) {
+                    results.set(rows.get(i), new ItemImportResult(rows.get(i), null,
+                            "Предмет не сохранен: " + rowException.getMostSpecificCause().getMessage()));
+                }
+            }
+        }
+    }
+
+    private static String validateImport(ItemDto itemDto) {
+        if (itemDto == null) {
+            return "Некорректный предмет";
+        }
+        if (itemDto.getName() == null || itemDto.getName().isBlank()) {
+            return "Поле name пусто.";
+        }
+        if (itemDto.getAvailable() == null) {
+            return "Поле available null.";
+        }
+        if (itemDto.getDescription() == null) {
+            return "Поле description null.";
+        }
+        return null;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public ItemDto getItem(Long itemId, Long userId) {
+        ItemDto itemDto = viewCache.get(itemId, this::loadItemView);
         try {
 
             if (itemDto.getOwner().equals(userId)) {
@@ -79,85 +170,82 @@ public class ItemServiceImpl implements ItemService {
         return itemDto;
     }
 
+    private ItemDto loadItemView(Long itemId) {
+        ItemDto itemDto = ItemMapper.toItemDto(repository.findById(itemId)
+                .orElseThrow(() -> new ObjectNotFoundException("Item not found")));
+        List<Comment> comments = commentRepository.findByItem_idOrderById(itemId);
+        if (!comments.isEmpty()) {
+
+            itemDto.setComments(comments.stream().map(CommentMapper::toCommentDto).collect(Collectors.toList()));
+        }
+        return itemDto;
+    }
+
     @Transactional
     @Override
     public ItemDto updateItem(Map<String, Object> fields, Long userId, Long itemId) {
-
-        Item item = repository.findByOwnerOrderById(userId).stream().filter(x -> x.getId().equals(itemId)).collect(Collectors.toList()).get(0);
-        Item updateItem = makeItemFromMap(fields, item);
-        User user = userRepository.findById(userId).orElseThrow(() -> new ObjectNotFoundException("User not found"));//
-        item.setOwner(user);
+        Item item = repository.findByIdAndOwner_Id(itemId, userId)
+                .orElseThrow(() -> new ObjectNotFoundException("Item not found"));
+        Item updateItem = ItemPatcher.apply(fields, item);
         repository.save(updateItem);
+        searchIndex.index(updateItem);
+        viewCache.invalidate(itemId);
         return ItemMapper.toItemDto(updateItem);
     }
 
-    Item makeItemFromMap(Map<String, Object> fields, Item item) {
-        fields.forEach((k, v) -> {
-            Field field = ReflectionUtils.findField(Item.class, k);
-            field.setAccessible(true);
-            if (v instanceof Integer) {
-                Long w = ((Integer) v).longValue();
-                ReflectionUtils.setField(field, item, w);
-            } else {
-                ReflectionUtils.setField(field, item, v);
-            }
-        });
-        return item;
-    }
-
-
     private ItemDto setLastNextBooking(ItemDto itemDto, Long itemId) {
-        Booking last;
-        Booking next;
-        try {
-            last = bookingRepository.findByItem_Id(itemId).stream().filter(x -> x.getStatus().equals(Status.APPROVED)).filter(x -> x.getStart().isBefore(LocalDateTime.now())).reduce((a, b) ->
-                    a.getStart().isAfter(b.getStart()) ? a : b).get();
-            itemDto.setLastBooking(BookingMapper.toBookingDtoForItem(last));
-        } catch (Exception e) {
-            itemDto.setLastBooking(null);
-        }
-        try {
-            next = bookingRepository.findByItem_Id(itemId).stream().filter(x -> x.getStatus().equals(Status.APPROVED)).filter(x -> x.getStart().isAfter(LocalDateTime.now())).reduce((a, b) ->
-                    a.getStart().isBefore(b.getStart()) ? a : b).get();
-            itemDto.setNextBooking(BookingMapper.toBookingDtoForItem(next));
-        } catch (Exception e) {
-            itemDto.setNextBooking(null);
-            return itemDto;
-        }
-
-
+        LocalDateTime now = LocalDateTime.now();
+        itemDto.setLastBooking(bookingTimeline.findLast(itemId, now));
+        itemDto.setNextBooking(bookingTimeline.findNext(itemId, now));
         return itemDto;
     }
 
-    private ItemDto setLastNextBookingWithoutStatus(ItemDto itemDto, Long itemId) {
-        Booking last;
-        Booking next;
-        try {
-            last = bookingRepository.findByItem_Id(itemId).stream().filter(x -> x.getStart().isBefore(LocalDateTime.now())).reduce((a, b) ->
-                    a.getStart().isAfter(b.getStart()) ? a : b).get();
-            itemDto.setLastBooking(BookingMapper.toBookingDtoForItem(last));
-        } catch (Exception e) {
-            itemDto.setLastBooking(null);
+    private Map<Long, Booking> groupByItem(List<Booking> bookings) {
+        return bookings.stream().collect(Collectors.toMap(x -> x.getItem().getId(), x -> x,
+                (a, b) -> a.getId() < b.getId() ? a : b));
+    }
 
+    @Transactional(readOnly = true)
+    public List<ItemDto> searchByNameOrDescription(String text) {
+        if (text.isBlank()) {
+            return new ArrayList<>();
         }
-        try {
-            next = bookingRepository.findByItem_Id(itemId).stream().filter(x -> x.getStart().isAfter(LocalDateTime.now())).reduce((a, b) ->
-                    a.getStart().isBefore(b.getStart()) ? a : b).get();
-            itemDto.setNextBooking(BookingMapper.toBookingDtoForItem(next));
-        } catch (Exception e) {
-            itemDto.setNextBooking(null);
-            return itemDto;
+        return searchCache.get(text, query -> databaseSearch
+                ? ItemMapper.toItemDto(repository.searchByNameOrDescription(query))
+                : searchIndex.search(query));
+    }
+
+    @Override
+    public List<ItemDto> searchFuzzy(String text) {
+        if (text.isBlank()) {
+            return new ArrayList<>();
         }
-        return itemDto;
+        return searchIndex.searchFuzzy(text);
     }
 
     @Transactional(readOnly = true)
-    public List<ItemDto> searchByNameOrDescription(String text) {
+    @Override
+    public ItemSearchPage searchPage(String text, boolean fuzzy, String cursor, int size) {
         if (text.isBlank()) {
-            return new ArrayList<>();
+            return new ItemSearchPage(new ArrayList<>(), null);
+        }
+        SearchCursor after = cursor == null ? null : SearchCursor.decode(cursor).checkQuery(text, fuzzy);
+        if (!databaseSearch || fuzzy) {
+            return searchIndex.searchPage(text, fuzzy, after, size);
         }
-        text = text.toLowerCase();
-        return ItemMapper.toItemDto(repository.searchByNameOrDescription(text));
+        List<Item> items = repository.searchByNameOrDescriptionAfter(ItemSearchCache.normalize(text),
+                after == null ? 0L : after.getId(), size + 1);
+        String next = null;
+        if (items.size() > size) {
+            items = items.subList(0, size);
+            next = new SearchCursor(SearchCursor.queryHash(text, false), 0, items.get(size - 1).getId()).encode();
+        }
+        return new ItemSearchPage(ItemMapper.toItemDto(items), next);
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int size) {
+        return searchIndex.suggest(prefix, size);
     }
 
     @Transactional
@@ -174,6 +262,7 @@ public class ItemServiceImpl implements ItemService {
         }
         commentDto.setCreated(created);
         Comment comment = commentRepository.save(CommentMapper.toDtoComment(commentDto, user, item));
+        viewCache.invalidate(itemId);
         return CommentMapper.toCommentDto(comment);
     }
 }
@@ -0,0 +1,46 @@
+package ru.practicum.shareit.item.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.util.AfterCommit;
+
+import java.util.function.Function;
+
+/**
+ * Item pages (item fields and comments) by item id. Booking fields are not cached: they depend on
+ * the viewer and the current time and are filled per request from {@code BookingTimelineIndex}.
+ */
+@Component
+public class ItemViewCache {
+    private final Cache<Long, ItemDto> cache;
+
+    public ItemViewCache(MeterRegistry meterRegistry, @Value("${shareit.item.cache-size:10000}") long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "items.view");
+    }
+
+    /**
+     * Returns a copy of the cached view, so callers may fill in viewer specific fields.
+     */
+    public ItemDto get(Long itemId, Function<Long, ItemDto> loader) {
+        return ItemMapper.copyItemDto(cache.get(itemId, loader));
+    }
+
+    /**
+     * Drops the view now and once more after commit, so a reader that loaded the old state
+     * while the transaction was running cannot leave it in the cache.
+     */
+    public void invalidate(Long itemId) {
+        cache.invalidate(itemId);
+        AfterCommit.run(() -> cache.invalidate(itemId));
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import ru.practicum.shareit.handler.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Position in search results ordered by relevance (descending) and id (ascending).
+ * Clients only see it as an opaque token. The token carries a hash of the query and the search mode,
+ * so it is only accepted for the search that issued it.
+ */
+@Getter
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SearchCursor {
+    int query;
+    int score;
+    long id;
+
+    static int queryHash(String text, boolean fuzzy) {
+        return Objects.hash(ItemSearchIndex.normalize(text), fuzzy);
+    }
+
+    boolean isBefore(int otherScore, long otherId) {
+        return otherScore < score || (otherScore == score && otherId > id);
+    }
+
+    /**
+     * Fails if the cursor was issued for another query or search mode.
+     */
+    SearchCursor checkQuery(String text, boolean fuzzy) {
+        if (query != queryHash(text, fuzzy)) {
+            throw new ValidationException("cursor относится к другому запросу.");
+        }
+        return this;
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((query + ":" + score + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+            return new SearchCursor(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new ValidationException("Некорректный cursor: " + token);
+        }
+    }
+}
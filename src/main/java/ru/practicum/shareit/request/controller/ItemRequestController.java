@@ -1,15 +1,23 @@
 package ru.practicum.shareit.request.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.handler.exception.ValidationException;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.dto.ItemRequestPage;
 import ru.practicum.shareit.request.service.ItemRequestService;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -21,7 +29,13 @@ import java.util.Optional;
 @AllArgsConstructor
 @RequestMapping(path = "/requests")
 public class ItemRequestController {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int REQUEST_PAGE_SIZE = 20;
+    private static final int MAX_REQUEST_PAGE_SIZE = 100;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ItemRequestService itemRequestService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<ItemRequestDto> add(@RequestHeader Map<String, String> headers,
@@ -60,7 +74,8 @@ public class ItemRequestController {
     public ResponseEntity<List<ItemRequestDto>> getAll(@RequestHeader Map<String, String> headers,
                                                        @RequestHeader("X-Sharer-User-Id") Long userId,
                                                        @Valid @RequestParam(name = "from") Optional<Long> from,
-                                                       @Valid @RequestParam(name = "size") Optional<Long> size) {
+                                                       @Valid @RequestParam(name = "size") Optional<Long> size,
+                                                       @RequestParam(name = "before") Optional<String> before) {
 
 
         if (!headers.containsKey("x-sharer-user-id")) {
@@ -68,6 +83,24 @@ public class ItemRequestController {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
 
+        if (before.isPresent() && from.isPresent()) {
+            log.info("Параметры before и from не могут быть заданы вместе");
+            throw new ValidationException("Укажите before или from, но не оба.");
+        }
+        if (before.isPresent() || (size.isPresent() && from.isEmpty())) {
+            if (size.isPresent() && (size.get() <= 0 || size.get() > MAX_REQUEST_PAGE_SIZE)) {
+                log.info("Значение size должно быть от 1 до " + MAX_REQUEST_PAGE_SIZE);
+                throw new ValidationException("Введите size от 1 до " + MAX_REQUEST_PAGE_SIZE + ".");
+            }
+            ItemRequestPage page = itemRequestService.getAllPage(userId, before.orElse(null),
+                    size.map(Long::intValue).orElse(REQUEST_PAGE_SIZE));
+            HttpHeaders responseHeaders = new HttpHeaders();
+            if (page.getNext() != null) {
+                responseHeaders.set(NEXT_CURSOR_HEADER, page.getNext());
+            }
+            return new ResponseEntity<>(page.getRequests(), responseHeaders, HttpStatus.OK);
+        }
+
         if (from.isEmpty() && size.isEmpty()) {
             return new ResponseEntity<>(itemRequestService.getAll(userId), HttpStatus.OK);
         }
@@ -76,6 +109,10 @@ public class ItemRequestController {
             log.info("Значение from или size не может быть меньше нуля");
             throw new ValidationException("from или size не может быть меньше нуля: Введите положительные значения.");
         }
+        if (from.get() > Integer.MAX_VALUE || size.get() > Integer.MAX_VALUE) {
+            log.info("Значение from или size слишком велико");
+            throw new ValidationException("from или size слишком велико.");
+        }
         if (from.get() == 0 && size.get() == 0) {
             log.info("Значение from и size не могут быть равны нулю");
             throw new ValidationException("from и size не могут быть равны нулю : Введите положительные значения.");
@@ -85,5 +122,32 @@ public class ItemRequestController {
 
 
     }
-}
 
+    /**
+     * Streams all requests of other users as one JSON document per line, each line is written as soon as
+     * its request is read.
+     */
+    @GetMapping(value = "/all", produces = NDJSON)
+    public void streamAll(@RequestHeader("X-Sharer-User-Id") Long userId,
+                          @RequestParam(name = "from") Optional<Long> from,
+                          @RequestParam(name = "size") Optional<Long> size,
+                          @RequestParam(name = "before") Optional<String> before,
+                          HttpServletResponse response) throws IOException {
+        if (from.isPresent() || size.isPresent() || before.isPresent()) {
+            log.info("Значения from, size и before не поддерживаются для " + NDJSON);
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream out = response.getOutputStream();
+        itemRequestService.streamAll(userId, x -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(x));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
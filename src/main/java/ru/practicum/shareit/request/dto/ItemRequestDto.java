@@ -1,8 +1,8 @@
 package ru.practicum.shareit.request.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
-import ru.practicum.shareit.item.model.Item;
 
 import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
@@ -19,5 +19,7 @@ public class ItemRequestDto {
     String description;
     Long requestor;
     LocalDateTime created;
-    List<Item> items;
+    List<RequestItemDto> items;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    List<RequestItemDto> suggestions;
 }
@@ -0,0 +1,15 @@
+package ru.practicum.shareit.request.dto;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ItemRequestPage {
+    List<ItemRequestDto> requests;
+    String next;
+}
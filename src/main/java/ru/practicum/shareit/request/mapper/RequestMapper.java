@@ -3,18 +3,22 @@ package ru.practicum.shareit.request.mapper;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.dto.RequestItemDto;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.model.User;
 
+import java.util.List;
+
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class RequestMapper {
-    public static ItemRequestDto toRequestDto(ItemRequest request) {
+    public static ItemRequestDto toRequestDto(ItemRequest request, List<RequestItemDto> items) {
         return new ItemRequestDto(
                 request.getId(),
                 request.getDescription(),
                 request.getRequestor().getId(),
                 request.getCreated(),
-                request.getItems()
+                items,
+                null
         );
     }
 
@@ -23,8 +27,7 @@ public class RequestMapper {
                 requestDto.getId(),
                 requestDto.getDescription(),
                 requestor,
-                requestDto.getCreated(),
-                requestDto.getItems()
+                requestDto.getCreated()
         );
     }
 }
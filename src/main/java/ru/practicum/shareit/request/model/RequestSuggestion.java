@@ -0,0 +1,49 @@
+package ru.practicum.shareit.request.model;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+@Entity
+@Table(name = "request_suggestions", schema = "public")
+@IdClass(RequestSuggestion.Key.class)
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Builder
+public class RequestSuggestion implements Persistable<RequestSuggestion.Key> {
+    @Id
+    @Column(name = "request_id")
+    Long requestId;
+    @Id
+    @Column(name = "item_id")
+    Long itemId;
+    Integer score;
+
+    @Override
+    public Key getId() {
+        return new Key(requestId, itemId);
+    }
+
+    /**
+     * Suggestions are only ever inserted. The key is assigned, so without this saveAll would merge them
+     * and select every row before inserting it.
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Key implements Serializable {
+        Long requestId;
+        Long itemId;
+    }
+}
@@ -3,19 +3,44 @@ package ru.practicum.shareit.request.repository;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import ru.practicum.shareit.request.model.ItemRequest;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long> {
+    int STREAM_FETCH_SIZE = 100;
 
+    @Query("select i from ItemRequest as i where i.requestor.id = ?1 order by i.created desc")
     List<ItemRequest> findByRequestor_idOrderByCreatedDesc(Long userId);
 
-    @Query("select i  from ItemRequest as i  left join i.requestor as r where r.id <> ?1 order by i.created DESC ")
+    @Query("select i from ItemRequest as i where i.requestor.id <> ?1 order by i.created desc, i.id desc")
     List<ItemRequest> findAllPaged(Long userId, PageRequest page);
 
-    @Query("select i  from ItemRequest as i  left join i.requestor as r where r.id <> ?1 order by i.created DESC ")
+    /**
+     * Requests of other users created before the given request, newest first. The range on created
+     * alone is a seek on ix_requests_created, the id breaks ties between requests created at the same time.
+     */
+    @Query("select i from ItemRequest as i where i.requestor.id <> ?1 and i.created <= ?2" +
+            " and (i.created < ?2 or i.id < ?3) order by i.created desc, i.id desc")
+    List<ItemRequest> findAllBefore(Long userId, LocalDateTime created, Long id, PageRequest page);
+
+    @Query("select i from ItemRequest as i where i.requestor.id <> ?1 order by i.created desc, i.id desc")
     List<ItemRequest> findAllIt(Long userId);
+
+    /**
+     * Same rows as {@link #findAllIt}, read through an open cursor. The stream must be closed inside the transaction.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select i from ItemRequest as i where i.requestor.id <> ?1 order by i.created desc, i.id desc")
+    Stream<ItemRequest> streamAll(Long userId);
 }
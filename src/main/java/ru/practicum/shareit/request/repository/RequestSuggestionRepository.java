@@ -0,0 +1,21 @@
+package ru.practicum.shareit.request.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.request.dto.RequestItemDto;
+import ru.practicum.shareit.request.model.RequestSuggestion;
+
+import java.util.List;
+
+@Repository
+public interface RequestSuggestionRepository extends JpaRepository<RequestSuggestion, RequestSuggestion.Key> {
+
+    /**
+     * Suggested items that are still available and were not added in answer to the request itself.
+     */
+    @Query("select new ru.practicum.shareit.request.dto.RequestItemDto(i.id, i.name, i.description, i.available, " +
+            "i.requestId) from RequestSuggestion as s, Item as i where s.requestId = ?1 and i.id = s.itemId " +
+            "and i.available = true and (i.requestId is null or i.requestId <> s.requestId) order by s.score desc, i.id")
+    List<RequestItemDto> findItemsByRequestId(Long requestId);
+}
@@ -1,8 +1,10 @@
 package ru.practicum.shareit.request.service;
 
 import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.dto.ItemRequestPage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ItemRequestService {
     ItemRequestDto add(Long userId, ItemRequestDto itemRequestDto);
@@ -14,4 +16,8 @@ public interface ItemRequestService {
     List<ItemRequestDto> getAllPaged(Long userId, Long from, Long size);
 
     List<ItemRequestDto> getAll(Long userId);
+
+    ItemRequestPage getAllPage(Long userId, String before, int size);
+
+    void streamAll(Long userId, Consumer<ItemRequestDto> consumer);
 }
@@ -6,21 +6,34 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.handler.exception.ObjectNotFoundException;
 import ru.practicum.shareit.handler.exception.ValidationException;
+import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.dto.ItemRequestPage;
+import ru.practicum.shareit.request.dto.RequestItemDto;
 import ru.practicum.shareit.request.mapper.RequestMapper;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.repository.RequestSuggestionRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class ItemRequestServiceImpl implements ItemRequestService {
     private final UserRepository userRepository;
     private final ItemRequestRepository itemRequestRepository;
+    private final ItemRepository itemRepository;
+    private final EntityManager entityManager;
+    private final RequestSuggestionRepository suggestionRepository;
+    private final RequestMatcher requestMatcher;
 
     @Transactional
     @Override
@@ -31,7 +44,9 @@ public class ItemRequestServiceImpl implements ItemRequestService {
         } catch (Exception e) {
             throw new ValidationException("Description is null");
         }
-        return RequestMapper.toRequestDto(itemRequestRepository.save(RequestMapper.toDtoRequest(itemRequestDto, user)));
+        ItemRequest itemRequest = itemRequestRepository.save(RequestMapper.toDtoRequest(itemRequestDto, user));
+        requestMatcher.match(itemRequest);
+        return RequestMapper.toRequestDto(itemRequest, new ArrayList<>());
     }
 
     @Transactional(readOnly = true)
@@ -39,7 +54,8 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     public ItemRequestDto getRequest(Long userId, Long requestId) {
         userRepository.findById(userId).orElseThrow(() -> new ObjectNotFoundException("User not found"));
         ItemRequest itemRequest = itemRequestRepository.findById(requestId).orElseThrow(() -> new ObjectNotFoundException("Request not found"));
-        ItemRequestDto itemRequestDto = RequestMapper.toRequestDto(itemRequest);
+        ItemRequestDto itemRequestDto = withItems(List.of(itemRequest)).get(0);
+        itemRequestDto.setSuggestions(suggestionRepository.findItemsByRequestId(requestId));
         return itemRequestDto;
     }
 
@@ -47,23 +63,80 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     @Override
     public List<ItemRequestDto> getOwn(Long userId) {
         userRepository.findById(userId).orElseThrow(() -> new ObjectNotFoundException("User not found"));
-        List<ItemRequest> itemRequests = itemRequestRepository.findByRequestor_idOrderByCreatedDesc(userId);
-        return itemRequests.stream().map(RequestMapper::toRequestDto).collect(Collectors.toList());
+        return withItems(itemRequestRepository.findByRequestor_idOrderByCreatedDesc(userId));
     }
 
     @Transactional(readOnly = true)
     @Override
     public List<ItemRequestDto> getAllPaged(Long userId, Long from, Long size) {
         PageRequest page = PageRequest.of(from.intValue() > 0 ? from.intValue() / size.intValue() : 0, size.intValue());
-        return itemRequestRepository.findAllPaged(userId, page).stream()
-                .map(RequestMapper::toRequestDto).collect(Collectors.toList());
+        return withItems(itemRequestRepository.findAllPaged(userId, page));
     }
 
     @Transactional(readOnly = true)
     @Override
     public List<ItemRequestDto> getAll(Long userId) {
-        return itemRequestRepository.findAllIt(userId).stream()
-                .map(RequestMapper::toRequestDto)
+        List<ItemRequest> itemRequests = itemRequestRepository.findAllIt(userId);
+        return itemRequests.isEmpty() ? new ArrayList<>()
+                : withItems(itemRequests, itemRepository.findByRequestOfOtherUsers(userId));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public ItemRequestPage getAllPage(Long userId, String before, int size) {
+        PageRequest page = PageRequest.of(0, size + 1);
+        RequestCursor cursor = before == null ? null : RequestCursor.decode(before);
+        List<ItemRequest> itemRequests = cursor == null ? itemRequestRepository.findAllPaged(userId, page)
+                : itemRequestRepository.findAllBefore(userId, cursor.getCreated(), cursor.getId(), page);
+        String next = null;
+        if (itemRequests.size() > size) {
+            itemRequests = itemRequests.subList(0, size);
+            ItemRequest last = itemRequests.get(size - 1);
+            next = new RequestCursor(last.getCreated(), last.getId()).encode();
+        }
+        return new ItemRequestPage(withItems(itemRequests), next);
+    }
+
+    /**
+     * Hands the requests of other users to the consumer while they are read. Rows are taken from the cursor
+     * in chunks of the fetch size, each chunk gets its items with one query and is detached once consumed.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public void streamAll(Long userId, Consumer<ItemRequestDto> consumer) {
+        List<ItemRequest> chunk = new ArrayList<>(ItemRequestRepository.STREAM_FETCH_SIZE);
+        try (Stream<ItemRequest> itemRequests = itemRequestRepository.streamAll(userId)) {
+            itemRequests.forEach(x -> {
+                chunk.add(x);
+                if (chunk.size() == ItemRequestRepository.STREAM_FETCH_SIZE) {
+                    consumeChunk(chunk, consumer);
+                }
+            });
+        }
+        consumeChunk(chunk, consumer);
+    }
+
+    private void consumeChunk(List<ItemRequest> chunk, Consumer<ItemRequestDto> consumer) {
+        withItems(chunk).forEach(consumer);
+        chunk.forEach(entityManager::detach);
+        chunk.clear();
+    }
+
+    /**
+     * Item summaries of a list of requests are read with one query and grouped by request id.
+     */
+    private List<ItemRequestDto> withItems(List<ItemRequest> itemRequests) {
+        if (itemRequests.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return withItems(itemRequests, itemRepository.findByRequestIdIn(itemRequests.stream()
+                .map(ItemRequest::getId).collect(Collectors.toList())));
+    }
+
+    private List<ItemRequestDto> withItems(List<ItemRequest> itemRequests, List<RequestItemDto> requestItems) {
+        Map<Long, List<RequestItemDto>> items = requestItems.stream().collect(Collectors.groupingBy(RequestItemDto::getRequestId));
+        return itemRequests.stream()
+                .map(x -> RequestMapper.toRequestDto(x, items.getOrDefault(x.getId(), new ArrayList<>())))
                 .collect(Collectors.toList());
     }
 
@@ -0,0 +1,43 @@
+package ru.practicum.shareit.request.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import ru.practicum.shareit.handler.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Creation time and id of the last request on a feed page; the next page holds the requests created before it.
+ * Clients only see it as an opaque token.
+ */
+@Getter
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RequestCursor {
+    LocalDateTime created;
+    long id;
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("r:" + created + "," + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static RequestCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int comma = value.indexOf(',');
+            if (!value.startsWith("r:") || comma < 0) {
+                throw new IllegalArgumentException();
+            }
+            return new RequestCursor(LocalDateTime.parse(value.substring(2, comma)),
+                    Long.parseLong(value.substring(comma + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ValidationException("Некорректный cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.practicum.shareit.request.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.item.service.ItemSearchIndex;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.model.RequestSuggestion;
+import ru.practicum.shareit.request.repository.RequestSuggestionRepository;
+import ru.practicum.shareit.util.AfterCommit;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Matches new requests against the item search index on a background thread and stores the best
+ * available items of other users as suggestions. The request is matched after its transaction commits,
+ * so the request save does not wait for matching and rolled back requests are never matched.
+ */
+@Slf4j
+@Component
+public class RequestMatcher {
+    private final ItemSearchIndex searchIndex;
+    private final RequestSuggestionRepository suggestionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final int limit;
+
+    public RequestMatcher(ItemSearchIndex searchIndex,
+                          RequestSuggestionRepository suggestionRepository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${shareit.request.suggestions:10}") int limit) {
+        this.searchIndex = searchIndex;
+        this.suggestionRepository = suggestionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "request-matcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.limit = limit;
+    }
+
+    public void match(ItemRequest request) {
+        Long requestId = request.getId();
+        Long requestorId = request.getRequestor().getId();
+        String description = request.getDescription();
+        AfterCommit.run(() -> executor.execute(() -> {
+            try {
+                suggest(requestId, requestorId, description);
+            } catch (RuntimeException e) {
+                log.warn("Не удалось подобрать предметы для запроса " + requestId + ": " + e.getMessage());
+            }
+        }));
+    }
+
+    List<RequestSuggestion> suggest(Long requestId, Long requestorId, String description) {
+        List<RequestSuggestion> suggestions = searchIndex.match(description, requestorId, limit).stream()
+                .map(x -> new RequestSuggestion(requestId, x.getItem().getId(), x.getScore()))
+                .collect(Collectors.toList());
+        if (!suggestions.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> suggestionRepository.saveAll(suggestions));
+        }
+        return suggestions;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.shareit.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Restores the invariant that the booking overlap check relies on: waiting and approved bookings of an item never
+ * overlap. Rows written before the check existed may break it. Runs on every start after the schema scripts;
+ * finding the affected items is one ordered pass over the active bookings, so a clean database costs no more than
+ * that. For each affected item approved bookings are kept first, then waiting ones, each in id order, and a booking
+ * that overlaps one already kept is rejected. The SQL is understood by both H2 and PostgreSQL.
+ */
+@Slf4j
+@Component
+@DependsOnDatabaseInitialization
+public class BookingOverlapMigration {
+    private static final String ACTIVE = "('WAITING', 'APPROVED')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public BookingOverlapMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        List<Long> items = jdbcTemplate.queryForList("select distinct item_id from (" +
+                "select item_id, start_date, max(end_date) over (partition by item_id order by start_date, id " +
+                "rows between unbounded preceding and 1 preceding) as previous_end " +
+                "from bookings where status in " + ACTIVE + ") as active_bookings " +
+                "where previous_end > start_date", Long.class);
+        items.forEach(itemId -> transactionTemplate.executeWithoutResult(status -> migrate(itemId)));
+    }
+
+    private void migrate(Long itemId) {
+        jdbcTemplate.queryForObject("select id from items where id = ? for update", Long.class, itemId);
+        List<Interval> bookings = jdbcTemplate.query("select id, start_date, end_date from bookings " +
+                        "where item_id = ? and status in " + ACTIVE + " " +
+                        "order by case when status = 'APPROVED' then 0 else 1 end, id",
+                (row, i) -> new Interval(row.getLong(1), row.getTimestamp(2), row.getTimestamp(3)), itemId);
+        List<Interval> kept = new ArrayList<>();
+        List<Long> rejected = new ArrayList<>();
+        for (Interval booking : bookings) {
+            if (kept.stream().anyMatch(booking::overlaps)) {
+                rejected.add(booking.id);
+            } else {
+                kept.add(booking);
+            }
+        }
+        rejected.forEach(id -> jdbcTemplate.update("update bookings set status = 'REJECTED' where id = ?", id));
+        log.info("Вещь " + itemId + ": пересекающиеся бронирования отклонены: "
+                + rejected.stream().map(String::valueOf).collect(Collectors.joining(", ")));
+    }
+
+    private static class Interval {
+        private final long id;
+        private final Timestamp start;
+        private final Timestamp end;
+
+        Interval(long id, Timestamp start, Timestamp end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean overlaps(Interval other) {
+            return start.before(other.end) && other.start.before(end);
+        }
+    }
+}
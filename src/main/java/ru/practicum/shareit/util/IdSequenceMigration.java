@@ -0,0 +1,53 @@
+package ru.practicum.shareit.util;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+/**
+ * Moves databases created before ids were taken from sequences onto them. Runs on every start after the schema
+ * scripts: drops identity from id columns that still have it and restarts a sequence whose next block could
+ * hand out an existing id. Hibernate's pooled optimizer gives out the ALLOCATION_SIZE ids ending at the value
+ * it reads, so the sequence has to stay ALLOCATION_SIZE past the largest id. Checking a sequence uses up one
+ * block of it. The SQL is understood by both H2 and PostgreSQL.
+ */
+@Slf4j
+@Component
+@DependsOnDatabaseInitialization
+@RequiredArgsConstructor
+public class IdSequenceMigration {
+    static final List<String> TABLES = List.of("users", "requests", "items", "bookings", "comments");
+    static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        TABLES.forEach(this::migrate);
+    }
+
+    private void migrate(String table) {
+        Integer identity = jdbcTemplate.queryForObject("select count(*) from information_schema.columns " +
+                "where lower(table_name) = ? and lower(column_name) = 'id' and is_identity = 'YES' " +
+                "and table_schema = current_schema", Integer.class, table);
+        if (identity != null && identity > 0) {
+            jdbcTemplate.execute("alter table " + table + " alter column id drop identity");
+            log.info("Таблица " + table + ": id больше не identity");
+        }
+        Long max = jdbcTemplate.queryForObject("select max(id) from " + table, Long.class);
+        if (max == null) {
+            return;
+        }
+        String sequence = table + "_seq";
+        Long next = jdbcTemplate.queryForObject("select nextval('" + sequence + "')", Long.class);
+        if (next == null || next < max + ALLOCATION_SIZE) {
+            jdbcTemplate.execute("alter sequence " + sequence + " restart with " + (max + ALLOCATION_SIZE));
+            log.info("Последовательность " + sequence + " перенесена за id " + max);
+        }
+    }
+}
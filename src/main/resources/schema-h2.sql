@@ -0,0 +1,3 @@
+-- H2 has no n-gram index, so LIKE '%x%' over these columns reads every item; they only save the per-row lower() calls
+ALTER TABLE items ADD COLUMN IF NOT EXISTS name_lower VARCHAR(128) GENERATED ALWAYS AS (LOWER(name));
+ALTER TABLE items ADD COLUMN IF NOT EXISTS description_lower VARCHAR(255) GENERATED ALWAYS AS (LOWER(description));
@@ -0,0 +1,7 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE items ADD COLUMN IF NOT EXISTS name_lower VARCHAR(128) GENERATED ALWAYS AS (lower(name)) STORED;
+ALTER TABLE items ADD COLUMN IF NOT EXISTS description_lower VARCHAR(255) GENERATED ALWAYS AS (lower(description)) STORED;
+
+CREATE INDEX IF NOT EXISTS ix_items_name_lower_trgm ON items USING gin (name_lower gin_trgm_ops) WHERE available;
+CREATE INDEX IF NOT EXISTS ix_items_description_lower_trgm ON items USING gin (description_lower gin_trgm_ops) WHERE available;
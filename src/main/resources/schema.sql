@@ -1,5 +1,11 @@
+create SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+create SEQUENCE IF NOT EXISTS requests_seq START WITH 1 INCREMENT BY 50;
+create SEQUENCE IF NOT EXISTS items_seq START WITH 1 INCREMENT BY 50;
+create SEQUENCE IF NOT EXISTS bookings_seq START WITH 1 INCREMENT BY 50;
+create SEQUENCE IF NOT EXISTS comments_seq START WITH 1 INCREMENT BY 50;
+
 create TABLE IF NOT EXISTS users (
-  id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+  id BIGINT NOT NULL,
   name VARCHAR(255) NOT NULL,
   email VARCHAR(512)  NOT NULL,
   CONSTRAINT pk_user PRIMARY KEY (id),
@@ -7,7 +13,7 @@ create TABLE IF NOT EXISTS users (
   );
 
   create TABLE IF NOT EXISTS requests (
-  id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+  id BIGINT NOT NULL,
   description VARCHAR(255) NOT NULL,
   requestor_id  BIGINT,
   created TIMESTAMP WITHOUT TIME ZONE NOT NULL,
@@ -15,7 +21,7 @@ create TABLE IF NOT EXISTS users (
   CONSTRAINT fk_requests_to_users FOREIGN KEY(requestor_id) REFERENCES users(id)
 );
 
-create TABLE IF NOT EXISTS items ( id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+create TABLE IF NOT EXISTS items ( id BIGINT PRIMARY KEY,
  name VARCHAR(128) NOT NULL,
  description VARCHAR(255) NOT NULL,
  available Boolean,
@@ -27,7 +33,7 @@ create TABLE IF NOT EXISTS items ( id BIGINT GENERATED ALWAYS AS IDENTITY PRIMAR
  );
 
  create TABLE IF NOT EXISTS bookings (
-  id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+  id BIGINT NOT NULL,
   start_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
   end_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
   item_id BIGINT,
@@ -38,12 +44,22 @@ create TABLE IF NOT EXISTS items ( id BIGINT GENERATED ALWAYS AS IDENTITY PRIMAR
   CONSTRAINT fk_bookings_to_users FOREIGN KEY(booker_id) REFERENCES users(id)
  );
 
+-- every foreign key column that a repository query filters or joins on has an index, PostgreSQL does not add them
+create INDEX IF NOT EXISTS ix_requests_requestor_created ON requests(requestor_id, created DESC);
+create INDEX IF NOT EXISTS ix_requests_created ON requests(created DESC, id DESC);
+create INDEX IF NOT EXISTS ix_items_owner ON items(owner, id);
+create INDEX IF NOT EXISTS ix_items_request ON items(request);
+create INDEX IF NOT EXISTS ix_bookings_item_start ON bookings(item_id, start_date DESC, end_date);
+-- the overlap check seeks the latest booking of one status, so status comes before start_date
+create INDEX IF NOT EXISTS ix_bookings_item_status_start ON bookings(item_id, status, start_date DESC, end_date);
+create INDEX IF NOT EXISTS ix_bookings_booker_id ON bookings(booker_id, id DESC);
+
 
 
 
 
 create TABLE IF NOT EXISTS comments (
-  id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+  id BIGINT NOT NULL,
   text VARCHAR(512) NOT NULL,
   item_id  BIGINT,
   author_id BIGINT,
@@ -53,6 +69,18 @@ create TABLE IF NOT EXISTS comments (
   CONSTRAINT fk_comments_to_items FOREIGN KEY(item_id) REFERENCES items(id)
 );
 
+create INDEX IF NOT EXISTS ix_comments_item_id ON comments(item_id, id);
+
+-- available items matched to a request by its description, filled in the background after the request is saved
+create TABLE IF NOT EXISTS request_suggestions (
+  request_id BIGINT NOT NULL,
+  item_id BIGINT NOT NULL,
+  score INTEGER NOT NULL,
+  CONSTRAINT pk_request_suggestions PRIMARY KEY (request_id, item_id),
+  CONSTRAINT fk_request_suggestions_to_requests FOREIGN KEY(request_id) REFERENCES requests(id),
+  CONSTRAINT fk_request_suggestions_to_items FOREIGN KEY(item_id) REFERENCES items(id)
+);
+
 
 /*create TABLE IF NOT EXISTS requests_items (
   item_id BIGINT ,
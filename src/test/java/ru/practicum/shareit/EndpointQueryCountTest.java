@@ -0,0 +1,127 @@
+package ru.practicum.shareit;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Calls the booking, item and request endpoints against a seeded database with open-session-in-view off
+ * and checks how many statements each of them runs. A lazy association touched by a mapper or by Jackson
+ * either fails the request or shows up here as an extra statement.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:endpoints",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "ru.practicum.shareit.EndpointQueryCountTest$SqlRecorder",
+        "logging.level.org.springframework.transaction.interceptor=WARN",
+        "logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN"})
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class EndpointQueryCountTest {
+    private static final String USER_HEADER = "x-sharer-user-id";
+    private static final long OWNER = 1001L;
+    private static final long BOOKER = 1002L;
+    private static final long REQUESTOR = 1003L;
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate("insert into users (id, name, email) values (?, ?, ?)", List.of(
+                new Object[]{OWNER, "owner", "owner@mail.com"},
+                new Object[]{BOOKER, "booker", "booker@mail.com"},
+                new Object[]{REQUESTOR, "requestor", "requestor@mail.com"}));
+        jdbcTemplate.update("insert into requests (id, description, requestor_id, created) values (?, ?, ?, ?)",
+                1001L, "need a drill", REQUESTOR, Timestamp.valueOf(now.minusDays(1)));
+        jdbcTemplate.batchUpdate("insert into items (id, name, description, available, owner, request) values (?, ?, ?, ?, ?, ?)", List.of(
+                new Object[]{1001L, "drill", "cordless drill", true, OWNER, 1001L},
+                new Object[]{1002L, "saw", "hand saw", true, OWNER, 1001L}));
+        jdbcTemplate.batchUpdate("insert into bookings (id, start_date, end_date, item_id, booker_id, status) values (?, ?, ?, ?, ?, ?)", List.of(
+                new Object[]{1001L, Timestamp.valueOf(now.minusDays(3)), Timestamp.valueOf(now.minusDays(2)), 1001L, BOOKER, "APPROVED"},
+                new Object[]{1002L, Timestamp.valueOf(now.plusDays(2)), Timestamp.valueOf(now.plusDays(3)), 1002L, BOOKER, "WAITING"}));
+        jdbcTemplate.update("insert into comments (id, text, item_id, author_id, created) values (?, ?, ?, ?, ?)",
+                1001L, "works", 1001L, BOOKER, Timestamp.valueOf(now.minusDays(1)));
+    }
+
+    @Test
+    void bookingEndpoints() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(5);
+        String booking = "{\"itemId\": 1001, \"start\": \"" + start + "\", \"end\": \"" + start.plusDays(1) + "\"}";
+
+        assertStatements(6, post("/bookings").header(USER_HEADER, BOOKER)
+                .contentType(MediaType.APPLICATION_JSON).content(booking));
+        assertStatements(6, patch("/bookings/1002").header(USER_HEADER, OWNER).param("approved", "true"));
+        assertStatements(1, get("/bookings/1001").header(USER_HEADER, BOOKER));
+        assertStatements(2, get("/bookings").header(USER_HEADER, BOOKER));
+        assertStatements(2, get("/bookings").header(USER_HEADER, BOOKER).param("from", "0").param("size", "10"));
+        assertStatements(2, get("/bookings").header(USER_HEADER, BOOKER).param("size", "10"));
+        assertStatements(2, get("/bookings/owner").header(USER_HEADER, OWNER).param("state", "FUTURE"));
+    }
+
+    @Test
+    void itemEndpoints() throws Exception {
+        assertStatements(3, post("/items").header(USER_HEADER, OWNER).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"hammer\", \"description\": \"steel hammer\", \"available\": true}"));
+        assertStatements(2, patch("/items/1001").header(USER_HEADER, OWNER).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"description\": \"drill with two batteries\"}"));
+        assertStatements(3, get("/items").header(USER_HEADER, OWNER));
+        assertStatements(2, get("/items/1001").header(USER_HEADER, BOOKER));
+        assertStatements(0, get("/items/1001").header(USER_HEADER, OWNER));
+        assertStatements(0, get("/items/search").header(USER_HEADER, BOOKER).param("text", "drill"));
+        assertStatements(5, post("/items/1001/comment").header(USER_HEADER, BOOKER)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"text\": \"still works\"}"));
+    }
+
+    @Test
+    void requestEndpoints() throws Exception {
+        assertStatements(3, post("/requests").header(USER_HEADER, REQUESTOR)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"description\": \"need a ladder\"}"));
+        assertStatements(4, get("/requests/1001").header(USER_HEADER, BOOKER));
+        assertStatements(3, get("/requests").header(USER_HEADER, REQUESTOR));
+        assertStatements(2, get("/requests/all").header(USER_HEADER, BOOKER));
+        assertStatements(2, get("/requests/all").header(USER_HEADER, BOOKER).param("from", "0").param("size", "10"));
+        assertStatements(2, get("/requests/all").header(USER_HEADER, BOOKER).accept("application/x-ndjson"));
+        assertStatements(2, get("/requests/all").header(USER_HEADER, BOOKER).param("size", "10"));
+    }
+
+    private void assertStatements(int expected, MockHttpServletRequestBuilder request) throws Exception {
+        SqlRecorder.STATEMENTS.clear();
+        MvcResult result = mvc.perform(request).andReturn();
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        assertEquals(expected, SqlRecorder.STATEMENTS.size(), String.join("\n", SqlRecorder.STATEMENTS));
+    }
+
+    public static class SqlRecorder implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package ru.practicum.shareit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.ClassUtils;
+import ru.practicum.shareit.booking.Role;
+import ru.practicum.shareit.booking.State;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.comment.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.repository.RequestSuggestionRepository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs EXPLAIN on every statement of the repository queries against a seeded H2 database, with the parameter
+ * values the repository bound, and fails when a table is read without an index condition. The table that drives
+ * the query may instead be read along an index in order when the query stops at a row limit.
+ * Queries that read everything by design (the startup timeline rebuild, the unpaged request list and the
+ * infix LIKE search) are not listed. H2 indexes foreign keys on its own, PostgreSQL relies on schema.sql.
+ */
+@Slf4j
+@DataJpaTest(showSql = false, properties = {
+        "logging.level.org.springframework.transaction.interceptor=WARN",
+        "logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN"})
+class RepositoryQueryPlanTest {
+    private static final int USERS = 100;
+    private static final int ITEMS = 1_000;
+    private static final int BOOKINGS = 10_000;
+    private static final int HISTORY = 20_000;
+    private static final Pattern SCAN_COUNT = Pattern.compile("scanCount: (\\d+)");
+    private static final Pattern ACCESS = Pattern.compile("/\\* ([A-Za-z_.0-9]+)(: [^*]*)? ?\\*/");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private ItemRequestRepository itemRequestRepository;
+    @Autowired
+    private RequestSuggestionRepository requestSuggestionRepository;
+
+    private final List<String> failures = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        // ANALYZE commits in H2, so the rows of the previous test are not rolled back
+        for (String table : List.of("request_suggestions", "comments", "bookings", "items", "requests", "users")) {
+            jdbcTemplate.execute("delete from " + table);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>();
+        for (long i = 1; i <= USERS; i++) {
+            rows.add(new Object[]{i, "user" + i, "user" + i + "@mail.com"});
+        }
+        jdbcTemplate.batchUpdate("insert into users (id, name, email) values (?, ?, ?)", rows);
+        rows.clear();
+        for (long i = 1; i <= ITEMS; i++) {
+            rows.add(new Object[]{i, "request" + i, i % USERS + 1, Timestamp.valueOf(now.minusHours(i))});
+        }
+        jdbcTemplate.batchUpdate("insert into requests (id, description, requestor_id, created) values (?, ?, ?, ?)", rows);
+        rows.clear();
+        for (long i = 1; i <= ITEMS; i++) {
+            rows.add(new Object[]{i, "item" + i, "thing " + i, i % 3 != 0, i % USERS + 1, i % 2 == 0 ? i : null});
+        }
+        jdbcTemplate.batchUpdate("insert into items (id, name, description, available, owner, request) values (?, ?, ?, ?, ?, ?)", rows);
+        rows.clear();
+        for (long i = 1; i <= BOOKINGS; i++) {
+            LocalDateTime start = now.plusHours(i - BOOKINGS / 2);
+            rows.add(new Object[]{i, Timestamp.valueOf(start), Timestamp.valueOf(start.plusMinutes(30)),
+                    i % ITEMS + 1, i % USERS + 1, Status.values()[(int) (i % 3)].name()});
+        }
+        jdbcTemplate.batchUpdate("insert into bookings (id, start_date, end_date, item_id, booker_id, status) values (?, ?, ?, ?, ?, ?)", rows);
+        rows.clear();
+        for (long i = 1; i <= ITEMS; i++) {
+            rows.add(new Object[]{i, "comment" + i, i % ITEMS + 1, i % USERS + 1, Timestamp.valueOf(now)});
+        }
+        jdbcTemplate.batchUpdate("insert into comments (id, text, item_id, author_id, created) values (?, ?, ?, ?, ?)", rows);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void repositoryQueriesUseIndexes() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> itemIds = List.of(1L, 2L, 3L);
+        Pageable page = PageRequest.of(0, 20);
+
+        explain("BookingRepository.findByItem_Id", () -> bookingRepository.findByItem_Id(1L));
+        explain("BookingRepository.findDtoByIdForUser", () -> bookingRepository.findDtoByIdForUser(1L, 2L));
+        explain("BookingRepository.findByIdFetchItemAndBooker", () -> bookingRepository.findByIdFetchItemAndBooker(1L));
+        explain("BookingRepository.findItemIdById", () -> bookingRepository.findItemIdById(1L));
+        explain("BookingRepository.findLastEndStartingBefore", () -> bookingRepository.findLastEndStartingBefore(1L,
+                Status.APPROVED, now.plusHours(2), PageRequest.of(0, 1)));
+        explain("BookingRepository.findLastByItemIds", () -> bookingRepository.findLastByItemIds(itemIds, now));
+        explain("BookingRepository.findNextByItemIds", () -> bookingRepository.findNextByItemIds(itemIds, now));
+        explain("BookingRepository.findByItem_IdAndBooker_idAndStatus",
+                () -> bookingRepository.findByItem_IdAndBooker_idAndStatus(1L, 2L, Status.APPROVED));
+        for (Role role : Role.values()) {
+            for (State state : State.values()) {
+                explain("BookingRepository.findBookings " + role + " " + state,
+                        () -> bookingRepository.findBookings(1L, role, state, now, null, Pageable.unpaged()));
+                explain("BookingRepository.findBookings " + role + " " + state + " after",
+                        () -> bookingRepository.findBookings(1L, role, state, now, 5_000L, page));
+            }
+        }
+
+        explain("ItemRepository.findByOwnerOrderById", () -> itemRepository.findByOwnerOrderById(1L));
+        explain("ItemRepository.findByIdAndOwner_Id", () -> itemRepository.findByIdAndOwner_Id(1L, 2L));
+        explain("ItemRepository.findByIdForUpdate", () -> itemRepository.findByIdForUpdate(1L));
+        explain("ItemRepository.findByRequestId", () -> itemRepository.findByRequestId(2L));
+        explain("ItemRepository.findByRequestIdIn", () -> itemRepository.findByRequestIdIn(List.of(2L, 4L, 6L)));
+
+        explain("CommentRepository.findByItem_idOrderById", () -> commentRepository.findByItem_idOrderById(1L));
+
+        explain("ItemRequestRepository.findByRequestor_idOrderByCreatedDesc",
+                () -> itemRequestRepository.findByRequestor_idOrderByCreatedDesc(1L));
+        explain("ItemRequestRepository.findAllPaged",
+                () -> itemRequestRepository.findAllPaged(1L, PageRequest.of(2, 20)));
+        explain("RequestSuggestionRepository.findItemsByRequestId",
+                () -> requestSuggestionRepository.findItemsByRequestId(2L));
+        explain("ItemRequestRepository.findAllBefore",
+                () -> itemRequestRepository.findAllBefore(1L, now.minusHours(500), 500L, PageRequest.of(0, 20)));
+
+        assertEquals(String.join("\n", failures), "");
+    }
+
+    /**
+     * The overlap check runs under the item lock on every booking write, so it has to stay a seek: the rows it
+     * reads must not grow with the item's history.
+     */
+    @Test
+    void overlapCheckReadsTheSameRowsWhateverTheHistory() {
+        LocalDateTime now = LocalDateTime.now();
+        Runnable overlapCheck = () -> bookingRepository.findLastEndStartingBefore(1L,
+                Status.APPROVED, now.plusHours(2), PageRequest.of(0, 1));
+        long rows = scannedRows(overlapCheck);
+
+        List<Object[]> history = new ArrayList<>();
+        for (long i = 1; i <= HISTORY; i++) {
+            LocalDateTime start = now.minusYears(1).minusHours(i);
+            history.add(new Object[]{BOOKINGS + i, Timestamp.valueOf(start), Timestamp.valueOf(start.plusMinutes(30)),
+                    1L, i % USERS + 1, Status.values()[(int) (i % Status.values().length)].name()});
+        }
+        jdbcTemplate.batchUpdate("insert into bookings (id, start_date, end_date, item_id, booker_id, status) values (?, ?, ?, ?, ?, ?)", history);
+        jdbcTemplate.execute("ANALYZE");
+
+        assertEquals(rows, scannedRows(overlapCheck));
+        assertEquals(1, rows);
+    }
+
+    private long scannedRows(Runnable query) {
+        StatementRecorder.EXECUTED.clear();
+        query.run();
+        String plan = plan("EXPLAIN ANALYZE ", StatementRecorder.EXECUTED.get(0));
+        log.info("overlap check:\n{}", plan);
+        assertTrue(plan.toLowerCase().contains("ix_bookings_item_status_start"), plan);
+        Matcher scanCount = SCAN_COUNT.matcher(plan);
+        long rows = 0;
+        while (scanCount.find()) {
+            rows += Long.parseLong(scanCount.group(1));
+        }
+        return rows;
+    }
+
+    private String plan(String explain, Executed executed) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(explain + executed.sql)) {
+                for (Map.Entry<Integer, Object> parameter : executed.parameters.entrySet()) {
+                    statement.setObject(parameter.getKey(), parameter.getValue());
+                }
+                try (ResultSet result = statement.executeQuery()) {
+                    result.next();
+                    return result.getString(1);
+                }
+            }
+        });
+    }
+
+    private void explain(String name, Runnable query) {
+        StatementRecorder.EXECUTED.clear();
+        query.run();
+        for (Executed executed : new ArrayList<>(StatementRecorder.EXECUTED)) {
+            String plan = plan("EXPLAIN ", executed);
+            log.info("{} {}:\n{}", name, executed.parameters.values(), plan);
+            Matcher access = ACCESS.matcher(plan);
+            boolean driving = true;
+            while (access.find()) {
+                boolean condition = access.group(2) != null && !access.group(2).contains("tableScan");
+                // only the first table can be walked in index order and left at the row limit
+                boolean bounded = driving && plan.contains("index sorted") && plan.contains("FETCH ");
+                driving = false;
+                if (access.group(1).endsWith(".tableScan") || !(condition || bounded)) {
+                    failures.add(name + " reads " + access.group(0) + " in\n" + plan);
+                }
+            }
+        }
+    }
+
+    private static class Executed {
+        private final String sql;
+        private final Map<Integer, Object> parameters;
+
+        Executed(String sql, Map<Integer, Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+
+    /**
+     * Wraps the data source so that every executed prepared statement is recorded with its parameter values.
+     */
+    @TestConfiguration
+    static class StatementRecorder implements BeanPostProcessor {
+        static final List<Executed> EXECUTED = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource)) {
+                return bean;
+            }
+            return wrap(bean, ClassUtils.getAllInterfaces(bean), (target, method, args) -> {
+                Object result = invoke(target, method, args);
+                return result instanceof Connection
+                        ? wrap(result, new Class<?>[]{Connection.class}, StatementRecorder::prepare) : result;
+            });
+        }
+
+        private static Object prepare(Object connection, Method method, Object[] args) throws Throwable {
+            Object result = invoke(connection, method, args);
+            if (!method.getName().equals("prepareStatement")) {
+                return result;
+            }
+            String sql = (String) args[0];
+            Map<Integer, Object> parameters = new TreeMap<>();
+            return wrap(result, new Class<?>[]{PreparedStatement.class}, (statement, statementMethod, statementArgs) -> {
+                String name = statementMethod.getName();
+                if (name.startsWith("set") && statementArgs != null && statementArgs.length >= 2
+                        && statementArgs[0] instanceof Integer) {
+                    parameters.put((Integer) statementArgs[0], name.equals("setNull") ? null : statementArgs[1]);
+                } else if (name.equals("clearParameters")) {
+                    parameters.clear();
+                } else if (name.startsWith("execute")) {
+                    EXECUTED.add(new Executed(sql, new TreeMap<>(parameters)));
+                }
+                return invoke(statement, statementMethod, statementArgs);
+            });
+        }
+
+        private static Object wrap(Object target, Class<?>[] types, Handler handler) {
+            return Proxy.newProxyInstance(StatementRecorder.class.getClassLoader(), types,
+                    (proxy, method, args) -> handler.handle(target, method, args));
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private interface Handler {
+            Object handle(Object target, Method method, Object[] args) throws Throwable;
+        }
+    }
+}
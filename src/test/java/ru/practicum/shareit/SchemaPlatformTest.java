@@ -0,0 +1,45 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The platform specific schema script has to follow the datasource: H2 by default, PostgreSQL with its profile.
+ */
+class SchemaPlatformTest {
+
+    @Test
+    void defaultDatasourceUsesH2Schema() {
+        try (ConfigurableApplicationContext context = start()) {
+            Environment environment = context.getEnvironment();
+            assertEquals(environment.getProperty("spring.datasource.url"), "jdbc:h2:mem:shareit");
+            assertEquals(environment.getProperty("spring.sql.init.schema-locations"),
+                    "classpath:schema.sql,optional:classpath:schema-h2.sql");
+        }
+    }
+
+    @Test
+    void postgresqlProfileUsesPostgresqlSchema() {
+        try (ConfigurableApplicationContext context = start("postgresql")) {
+            Environment environment = context.getEnvironment();
+            assertEquals(environment.getProperty("spring.datasource.url"), "jdbc:postgresql://localhost:5432/shareit");
+            assertEquals(environment.getProperty("spring.sql.init.schema-locations"),
+                    "classpath:schema.sql,optional:classpath:schema-postgresql.sql");
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String... profiles) {
+        return new SpringApplicationBuilder(Empty.class).web(WebApplicationType.NONE).profiles(profiles)
+                .logStartupInfo(false).run();
+    }
+
+    @Configuration
+    static class Empty {
+    }
+}
@@ -11,10 +11,15 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.practicum.shareit.booking.Role;
+import ru.practicum.shareit.booking.State;
 import ru.practicum.shareit.booking.Status;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingPage;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.handler.exception.ServiceUnavailableException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.model.User;
 
@@ -22,6 +27,7 @@ import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.Matchers.is;
@@ -32,6 +38,7 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -64,7 +71,7 @@ class BookingControllerTest {
         User userAdd = User.builder().email("a@n.com").id(userId).name("nick").build();
         Booking bookingBack = Booking.builder().item(itemAdd).booker(userAdd)
                 .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        Mockito.when(bookingService.addNewBooking(any(BookingDto.class))).thenReturn(bookingBack);
+        Mockito.when(bookingService.addNewBooking(any(BookingDto.class))).thenReturn(BookingMapper.toBookingDtoBack(bookingBack));
 
         String result = mockMvc.perform(MockMvcRequestBuilders.post("/bookings")
                 .param("x-sharer-user-id", "0")
@@ -75,12 +82,15 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id", is(bookingDtoCreate.getId()), Long.class))
+                .andExpect(jsonPath("$.item.name", is("mock")))
+                .andExpect(jsonPath("$.booker.id", is(userId), Long.class))
+                .andExpect(jsonPath("$.booker.email").doesNotExist())
                 //.andExpect(jsonPath("$.start", is(bookingDtoCreate.getStart().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSSS")).toString())))
                 //.andExpect(jsonPath("$.end", is(bookingDtoCreate.getEnd().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSSS")).toString())))
                 .andReturn()
                 .getResponse()
                 .getContentAsString();
-        assertEquals(objectMapper.writeValueAsString(bookingBack), result);
+        assertEquals(objectMapper.writeValueAsString(BookingMapper.toBookingDtoBack(bookingBack)), result);
         verify(bookingService).addNewBooking(bookingDtoCreate);
     }
 
@@ -99,7 +109,7 @@ class BookingControllerTest {
         User userAdd = User.builder().email("a@n.com").id(userId).name("nick").build();
         Booking bookingBack = Booking.builder().item(itemAdd).booker(userAdd)
                 .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        Mockito.when(bookingService.addNewBooking(any(BookingDto.class))).thenReturn(bookingBack);
+        Mockito.when(bookingService.addNewBooking(any(BookingDto.class))).thenReturn(BookingMapper.toBookingDtoBack(bookingBack));
         Map<String, String> headers = new HashMap<>();
         headers.put("x-sharer-user-id", "0");
         mockMvc.perform(MockMvcRequestBuilders.post("/bookings")
@@ -129,7 +139,7 @@ class BookingControllerTest {
         User userAdd = User.builder().email("a@n.com").id(userId).name("nick").build();
         Booking bookingBack = Booking.builder().item(itemAdd).booker(userAdd)
                 .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        Mockito.when(bookingService.addNewBooking(any(BookingDto.class))).thenReturn(bookingBack);
+        Mockito.when(bookingService.addNewBooking(any(BookingDto.class))).thenReturn(BookingMapper.toBookingDtoBack(bookingBack));
         Map<String, String> headers = new HashMap<>();
         headers.put("x-sharer-user-id", "0");
         mockMvc.perform(MockMvcRequestBuilders.post("/bookings")
@@ -158,7 +168,7 @@ class BookingControllerTest {
         User userAdd = User.builder().email("a@n.com").id(userId).name("nick").build();
         Booking bookingBack = Booking.builder().item(itemAdd).booker(userAdd)
                 .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        Mockito.when(bookingService.addNewBooking(any(BookingDto.class))).thenReturn(bookingBack);
+        Mockito.when(bookingService.addNewBooking(any(BookingDto.class))).thenReturn(BookingMapper.toBookingDtoBack(bookingBack));
 
         mockMvc.perform(MockMvcRequestBuilders.post("/bookings")
                 .param("x-sharer-user-id", "0")
@@ -186,7 +196,7 @@ class BookingControllerTest {
         User userAdd = User.builder().email("a@n.com").id(userId).name("nick").build();
         Booking bookingBack = Booking.builder().item(itemAdd).booker(userAdd)
                 .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        Mockito.when(bookingService.addNewBooking(any(BookingDto.class))).thenReturn(bookingBack);
+        Mockito.when(bookingService.addNewBooking(any(BookingDto.class))).thenReturn(BookingMapper.toBookingDtoBack(bookingBack));
 
         mockMvc.perform(MockMvcRequestBuilders.post("/bookings")
                 .param("x-sharer-user-id", "0")
@@ -214,7 +224,7 @@ class BookingControllerTest {
         User userAdd = User.builder().email("a@n.com").id(userId).name("nick").build();
         Booking bookingBack = Booking.builder().item(itemAdd).booker(userAdd)
                 .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        Mockito.when(bookingService.addNewBooking(any(BookingDto.class))).thenReturn(bookingBack);
+        Mockito.when(bookingService.addNewBooking(any(BookingDto.class))).thenReturn(BookingMapper.toBookingDtoBack(bookingBack));
 
         mockMvc.perform(MockMvcRequestBuilders.post("/bookings")
                 .param("x-sharer-user-id", "0")
@@ -243,7 +253,7 @@ class BookingControllerTest {
         User userAdd = User.builder().email("a@n.com").id(userId).name("nick").build();
         Booking bookingBack = Booking.builder().item(itemAdd).booker(userAdd)
                 .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        Mockito.when(bookingService.addNewBooking(any(BookingDto.class))).thenReturn(bookingBack);
+        Mockito.when(bookingService.addNewBooking(any(BookingDto.class))).thenReturn(BookingMapper.toBookingDtoBack(bookingBack));
 
         mockMvc.perform(MockMvcRequestBuilders.post("/bookings")
                 .param("x-sharer-user-id", "0")
@@ -257,6 +267,19 @@ class BookingControllerTest {
         verify(bookingService, never()).addNewBooking(bookingDtoCreate);
     }
 
+    @SneakyThrows
+    @Test
+    void updateBookingTimedOut() {
+        Mockito.when(bookingService.bookingUpdate(1L, 0L, Status.APPROVED))
+                .thenThrow(new ServiceUnavailableException("Бронирование не обработано, повторите запрос позже."));
+        mockMvc.perform(patch("/bookings/1")
+                .param("approved", "true")
+                .header("x-sharer-user-id", 0L)
+                .accept("application/json"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.error", is("Бронирование не обработано, повторите запрос позже.")));
+    }
+
     @SneakyThrows
     @Test
     void getBooking() {
@@ -322,7 +345,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isBadRequest());
-        verify(bookingService, never()).getBookingOwner(userId);
+        verify(bookingService, never()).getBookings(any(), any(), any(), any(), any());
     }
 
 
@@ -337,7 +360,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isBadRequest());
-        verify(bookingService, never()).getBookingOwner(userId);
+        verify(bookingService, never()).getBookings(any(), any(), any(), any(), any());
     }
 
     @SneakyThrows
@@ -355,7 +378,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isBadRequest());
-        verify(bookingService, never()).getBookingOwner(userId);
+        verify(bookingService, never()).getBookings(any(), any(), any(), any(), any());
     }
 
     @SneakyThrows
@@ -373,7 +396,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isBadRequest());
-        verify(bookingService, never()).getBookingOwner(userId);
+        verify(bookingService, never()).getBookings(any(), any(), any(), any(), any());
     }
 
     @SneakyThrows
@@ -391,7 +414,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isOk());
-        verify(bookingService).getAllOwnBookingPaged(userId, 2L, 2L);
+        verify(bookingService).getBookings(userId, Role.OWNER, State.ALL, 2L, 2L);
     }
 
     @SneakyThrows
@@ -408,14 +431,13 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isOk());
-        verify(bookingService).getBookingOwner(userId);
+        verify(bookingService).getBookings(userId, Role.OWNER, State.ALL, null, null);
     }
 
     @SneakyThrows
     @Test
     void getBookingOwnerParamStateEqualsPast() {
         Long userId = 0L;
-        LocalDateTime now = LocalDateTime.parse(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")));
         mockMvc.perform(MockMvcRequestBuilders.get("/bookings/owner")
                 .param("x-sharer-user-id", "0")
                 .param("state", "PAST")
@@ -425,14 +447,13 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isOk());
-        verify(bookingService).getBookingOwnerPast(userId, now);
+        verify(bookingService).getBookings(userId, Role.OWNER, State.PAST, null, null);
     }
 
     @SneakyThrows
     @Test
     void getBookingOwnerParamStateEqualsCurrent() {
         Long userId = 0L;
-        LocalDateTime now = LocalDateTime.parse(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")));
         mockMvc.perform(MockMvcRequestBuilders.get("/bookings/owner")
                 .param("x-sharer-user-id", "0")
                 .param("state", "CURRENT")
@@ -442,14 +463,13 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isOk());
-        verify(bookingService).getBookingOwnerCurrent(userId, now);
+        verify(bookingService).getBookings(userId, Role.OWNER, State.CURRENT, null, null);
     }
 
     @SneakyThrows
     @Test
     void getBookingOwnerParamStateEqualsFuture() {
         Long userId = 0L;
-        LocalDateTime now = LocalDateTime.parse(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")));
         mockMvc.perform(MockMvcRequestBuilders.get("/bookings/owner")
                 .param("x-sharer-user-id", "0")
                 .param("state", "FUTURE")
@@ -459,7 +479,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isOk());
-        verify(bookingService).getBookingOwnerFuture(userId, now);
+        verify(bookingService).getBookings(userId, Role.OWNER, State.FUTURE, null, null);
     }
 
     @SneakyThrows
@@ -475,7 +495,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isOk());
-        verify(bookingService).getBookingOwnerStatus(userId, Status.REJECTED);
+        verify(bookingService).getBookings(userId, Role.OWNER, State.REJECTED, null, null);
     }
 
     @SneakyThrows
@@ -491,7 +511,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isBadRequest());
-        verify(bookingService, never()).getBookingOwnerStatus(userId, Status.REJECTED);
+        verify(bookingService, never()).getBookings(any(), any(), any(), any(), any());
     }
 
     @SneakyThrows
@@ -507,7 +527,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isOk());
-        verify(bookingService).getBookingOwner(userId);
+        verify(bookingService).getBookings(userId, Role.OWNER, State.ALL, null, null);
     }
 
 
@@ -523,7 +543,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isBadRequest());
-        verify(bookingService, never()).getBookingBooker(userId);
+        verify(bookingService, never()).getBookings(any(), any(), any(), any(), any());
     }
 
 
@@ -538,7 +558,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isBadRequest());
-        verify(bookingService, never()).getBookingBooker(userId);
+        verify(bookingService, never()).getBookings(any(), any(), any(), any(), any());
     }
 
     @SneakyThrows
@@ -556,7 +576,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isBadRequest());
-        verify(bookingService, never()).getBookingBooker(userId);
+        verify(bookingService, never()).getBookings(any(), any(), any(), any(), any());
     }
 
     @SneakyThrows
@@ -574,7 +594,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isBadRequest());
-        verify(bookingService, never()).getBookingBooker(userId);
+        verify(bookingService, never()).getBookings(any(), any(), any(), any(), any());
     }
 
     @SneakyThrows
@@ -592,7 +612,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isOk());
-        verify(bookingService).getAllBookingPaged(userId, 2L, 2L);
+        verify(bookingService).getBookings(userId, Role.BOOKER, State.ALL, 2L, 2L);
     }
 
     @SneakyThrows
@@ -609,14 +629,13 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isOk());
-        verify(bookingService).getBookingBooker(userId);
+        verify(bookingService).getBookings(userId, Role.BOOKER, State.ALL, null, null);
     }
 
     @SneakyThrows
     @Test
     void getBookingBookerParamStateEqualsPast() {
         Long userId = 0L;
-        LocalDateTime now = LocalDateTime.parse(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")));
         mockMvc.perform(MockMvcRequestBuilders.get("/bookings")
                 .param("x-sharer-user-id", "0")
                 .param("state", "PAST")
@@ -626,14 +645,13 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isOk());
-        verify(bookingService).getBookingBookerPast(userId, now);
+        verify(bookingService).getBookings(userId, Role.BOOKER, State.PAST, null, null);
     }
 
     @SneakyThrows
     @Test
     void getBookingBookerParamStateEqualsCurrent() {
         Long userId = 0L;
-        LocalDateTime now = LocalDateTime.parse(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")));
         mockMvc.perform(MockMvcRequestBuilders.get("/bookings")
                 .param("x-sharer-user-id", "0")
                 .param("state", "CURRENT")
@@ -643,14 +661,13 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isOk());
-        verify(bookingService).getBookingBookerCurrent(userId, now);
+        verify(bookingService).getBookings(userId, Role.BOOKER, State.CURRENT, null, null);
     }
 
     @SneakyThrows
     @Test
     void getBookingBookerParamStateEqualsFuture() {
         Long userId = 0L;
-        LocalDateTime now = LocalDateTime.parse(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")));
         mockMvc.perform(MockMvcRequestBuilders.get("/bookings")
                 .param("x-sharer-user-id", "0")
                 .param("state", "FUTURE")
@@ -660,7 +677,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isOk());
-        verify(bookingService).getBookingBookerFuture(userId, now);
+        verify(bookingService).getBookings(userId, Role.BOOKER, State.FUTURE, null, null);
     }
 
     @SneakyThrows
@@ -676,7 +693,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isOk());
-        verify(bookingService).getBookingBookerStatus(userId, Status.REJECTED);
+        verify(bookingService).getBookings(userId, Role.BOOKER, State.REJECTED, null, null);
     }
 
     @SneakyThrows
@@ -692,7 +709,7 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isBadRequest());
-        verify(bookingService, never()).getBookingBookerStatus(userId, Status.REJECTED);
+        verify(bookingService, never()).getBookings(any(), any(), any(), any(), any());
     }
 
 
@@ -709,7 +726,57 @@ class BookingControllerTest {
                 .accept("application/json"))
                 .andDo(print())
                 .andExpect(status().isOk());
-        verify(bookingService).getBookingBooker(userId);
+        verify(bookingService).getBookings(userId, Role.BOOKER, State.ALL, null, null);
+    }
+
+    @SneakyThrows
+    @Test
+    void getBookingBookerPagedKeepsState() {
+        Long userId = 0L;
+        mockMvc.perform(MockMvcRequestBuilders.get("/bookings")
+                .param("state", "FUTURE")
+                .param("from", "0")
+                .param("size", "10")
+                .header("x-sharer-user-id", userId)
+                .contentType("application/json")
+                .characterEncoding(StandardCharsets.UTF_8)
+                .accept("application/json"))
+                .andDo(print())
+                .andExpect(status().isOk());
+        verify(bookingService).getBookings(userId, Role.BOOKER, State.FUTURE, 0L, 10L);
+    }
+
+    @SneakyThrows
+    @Test
+    void getBookingOwnerCursorPage() {
+        Long userId = 0L;
+        Mockito.when(bookingService.getBookingsPage(userId, Role.OWNER, State.ALL, "abc", 5))
+                .thenReturn(new BookingPage(List.of(), "def"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/bookings/owner")
+                .param("cursor", "abc")
+                .param("size", "5")
+                .header("x-sharer-user-id", userId)
+                .accept("application/json"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "def"));
+        verify(bookingService, never()).getBookings(any(), any(), any(), any(), any());
+    }
+
+    @SneakyThrows
+    @Test
+    void getBookingBookerFirstCursorPage() {
+        Long userId = 0L;
+        Mockito.when(bookingService.getBookingsPage(userId, Role.BOOKER, State.ALL, null, 10))
+                .thenReturn(new BookingPage(List.of(), null));
+        mockMvc.perform(MockMvcRequestBuilders.get("/bookings")
+                .param("size", "10")
+                .header("x-sharer-user-id", userId)
+                .accept("application/json"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+        verify(bookingService).getBookingsPage(userId, Role.BOOKER, State.ALL, null, 10);
     }
 
     @SneakyThrows
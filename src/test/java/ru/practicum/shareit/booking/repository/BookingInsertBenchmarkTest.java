@@ -0,0 +1,80 @@
+package ru.practicum.shareit.booking.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Run with -Dbenchmark=true. Persists 100k bookings in chunks and reports inserts per second.
+ * The database is an H2 TCP server on localhost, so every statement and batch pays a client/server
+ * round trip as it would with PostgreSQL.
+ */
+@Slf4j
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BookingInsertBenchmarkTest {
+    private static final int COUNT = 100_000;
+    private static final int CHUNK = 1_000;
+    private static Server server;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) throws SQLException {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        registry.add("spring.datasource.url", () -> "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:bookings");
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop();
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Test
+    void insertBookings() {
+        User owner = entityManager.persist(User.builder().email("a@n.com").name("an").build());
+        User booker = entityManager.persist(User.builder().email("ai@n.com").name("ain").build());
+        Item item = entityManager.persist(Item.builder().available(true).description("thing").name("thing")
+                .owner(owner).build());
+        entityManager.flush();
+        LocalDateTime start = LocalDateTime.now();
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            entityManager.persist(Booking.builder().start(start.plusHours(i)).end(start.plusHours(i + 1))
+                    .item(item).booker(booker).status(Status.WAITING).build());
+            if ((i + 1) % CHUNK == 0) {
+                entityManager.flush();
+                entityManager.clear();
+                item = entityManager.getEntityManager().getReference(Item.class, item.getId());
+                booker = entityManager.getEntityManager().getReference(User.class, booker.getId());
+            }
+        }
+        entityManager.flush();
+        long elapsed = System.nanoTime() - begin;
+
+        assertEquals(bookingRepository.count(), COUNT);
+        log.info("bookings: {}, {} ms, {} inserts/s", COUNT, elapsed / 1_000_000, COUNT * 1_000_000_000L / elapsed);
+    }
+}
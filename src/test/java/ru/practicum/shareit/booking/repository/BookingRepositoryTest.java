@@ -7,8 +7,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.Role;
+import ru.practicum.shareit.booking.State;
 import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingDtoBack;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
@@ -18,7 +22,7 @@ import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 
@@ -49,11 +53,11 @@ class BookingRepositoryTest {
         LocalDateTime endPast = now().minusDays(1);
         LocalDateTime startFuture = now().plusDays(1);
         LocalDateTime endFuture = now().plusDays(2);
-        ItemRequest requestOne = itemRequestRepository.save(ItemRequest.builder().created(now()).description("thing").items(new ArrayList<>())
+        ItemRequest requestOne = itemRequestRepository.save(ItemRequest.builder().created(now()).description("thing")
                 .requestor(user).build());
-        ItemRequest requestTwo = itemRequestRepository.save(ItemRequest.builder().created(now()).description("thing2").items(new ArrayList<>())
+        ItemRequest requestTwo = itemRequestRepository.save(ItemRequest.builder().created(now()).description("thing2")
                 .requestor(user).build());
-        ItemRequest requestThree = itemRequestRepository.save(ItemRequest.builder().created(now()).description("thing3").items(new ArrayList<>())
+        ItemRequest requestThree = itemRequestRepository.save(ItemRequest.builder().created(now()).description("thing3")
                 .requestor(user).build());
 
         Item itemOne = itemRepository.save(Item.builder().requestId(requestOne.getId()).available(true).description("thing").name("thing")
@@ -71,94 +75,97 @@ class BookingRepositoryTest {
     }
 
     @Test
-    void findByOwner() {
-
-        List<Booking> bookings = bookingRepository.findByOwner(1L);
-        List<Booking> bookingsAll = bookingRepository.findAll();
-        assertEquals(bookings.size(), 3);//0
-        assertEquals(bookings.get(0).getItem().getOwner().getId(), 1L);
-
+    void findLastEndStartingBefore() {
+        Item item = itemRepository.findAll().get(0);
+        User user = userRepository.findAll().get(1);
+        LocalDateTime start = now().plusDays(10).truncatedTo(ChronoUnit.SECONDS);
+        bookingRepository.save(Booking.builder().booker(user).item(item)
+                .status(Status.APPROVED).start(start).end(start.plusDays(1)).build());
+        bookingRepository.save(Booking.builder().booker(user).item(item)
+                .status(Status.WAITING).start(start.plusDays(2)).end(start.plusDays(3)).build());
+        bookingRepository.save(Booking.builder().booker(user).item(item)
+                .status(Status.REJECTED).start(start.plusDays(4)).end(start.plusDays(5)).build());
+        PageRequest first = PageRequest.of(0, 1);
+
+        assertEquals(bookingRepository.findLastEndStartingBefore(item.getId(), Status.WAITING, start.plusDays(6), first),
+                List.of(start.plusDays(3)));
+        assertEquals(bookingRepository.findLastEndStartingBefore(item.getId(), Status.APPROVED, start.plusDays(6), first),
+                List.of(start.plusDays(1)));
+        assertEquals(bookingRepository.findLastEndStartingBefore(item.getId(), Status.APPROVED, start, first).size(), 0);
     }
 
-    @Test
-    void findByOwnerPaged() {
 
-        Long from = 1L;
-        Long size = 2L;
-        PageRequest page = PageRequest.of(from.intValue() > 0 ? from.intValue() / size.intValue() : 0, size.intValue());
-        List<Booking> bookings = bookingRepository.findByOwnerPaged(1L, page);
-        assertEquals(bookings.size(), 2);
-        assertEquals(bookings.get(0).getItem().getOwner().getId(), 1L);
 
 
+    @Test
+    void findBookingsByOwner() {
+        List<BookingDtoBack> bookings = bookingRepository.findBookings(1L, Role.OWNER, State.ALL, now(), null, Pageable.unpaged());
+        assertEquals(bookings.size(), 3);
+        assertEquals(bookings.get(0).getItem().getId(), 3L);
+        assertEquals(bookings.get(0).getItem().getName(), "thing3");
+        assertEquals(bookings.get(0).getBooker().getName(), "ain");
+        assertEquals(bookingRepository.findBookings(2L, Role.OWNER, State.ALL, now(), null, Pageable.unpaged()).size(), 0);
     }
 
     @Test
-    void findByBooker() {
-        List<Booking> bookings = bookingRepository.findByBooker(2L);
-
-        assertEquals(bookings.size(), 3);//0
-        assertEquals(bookingRepository.findAll().size(), 3);
+    void findBookingsByBooker() {
+        List<BookingDtoBack> bookings = bookingRepository.findBookings(2L, Role.BOOKER, State.ALL, now(), null, Pageable.unpaged());
+        assertEquals(bookings.size(), 3);
         assertEquals(bookings.get(0).getBooker().getId(), 2L);
+        assertEquals(bookingRepository.findBookings(1L, Role.BOOKER, State.ALL, now(), null, Pageable.unpaged()).size(), 0);
     }
 
     @Test
-    void findByBookerPaged() {
-        Long from = 1L;
-        Long size = 2L;
-        PageRequest page = PageRequest.of(from.intValue() > 0 ? from.intValue() / size.intValue() : 0, size.intValue());
-        List<Booking> bookings = bookingRepository.findByBookerPaged(2L, page);
-        assertEquals(bookings.size(), 2);
-        assertEquals(bookings.get(0).getItem().getOwner().getId(), 1L);
+    void findBookingsByState() {
+        for (Role role : Role.values()) {
+            Long userId = role == Role.OWNER ? 1L : 2L;
+            assertEquals(bookingRepository.findBookings(userId, role, State.PAST, now(), null, Pageable.unpaged())
+                    .get(0).getItem().getId(), 1L);
+            assertEquals(bookingRepository.findBookings(userId, role, State.CURRENT, now(), null, Pageable.unpaged())
+                    .get(0).getItem().getId(), 2L);
+            assertEquals(bookingRepository.findBookings(userId, role, State.FUTURE, now(), null, Pageable.unpaged())
+                    .get(0).getItem().getId(), 3L);
+            assertEquals(bookingRepository.findBookings(userId, role, State.WAITING, now(), null, Pageable.unpaged())
+                    .size(), 3);
+            assertEquals(bookingRepository.findBookings(userId, role, State.REJECTED, now(), null, Pageable.unpaged())
+                    .size(), 0);
+        }
     }
 
     @Test
-    void findByBooker_IdAndStartIsAfterOrderByIdDesc() {
-        List<Booking> bookings = bookingRepository.findByBooker_IdAndStartIsAfterOrderByIdDesc(2L, now());
+    void findBookingsPaged() {
+        List<BookingDtoBack> bookings = bookingRepository.findBookings(1L, Role.OWNER, State.ALL, now(), null, PageRequest.of(1, 2));
         assertEquals(bookings.size(), 1);
-        assertEquals(bookings.get(0).getBooker().getId(), 2L);
-    }
-
+        assertEquals(bookings.get(0).getItem().getId(), 1L);
 
-    @Test
-    void findByBooker_IdAndEndIsBeforeOrderByIdDesc() {
-        List<Booking> bookings = bookingRepository.findByBooker_IdAndEndIsBeforeOrderByIdDesc(2L, now());
-        assertEquals(bookings.size(), 1);
-        assertEquals(bookings.get(0).getBooker().getId(), 2L);
+        bookings = bookingRepository.findBookings(2L, Role.BOOKER, State.WAITING, now(), null, PageRequest.of(0, 2));
+        assertEquals(bookings.size(), 2);
+        assertEquals(bookings.get(0).getItem().getId(), 3L);
+        assertEquals(bookings.get(1).getItem().getId(), 2L);
     }
 
-
     @Test
-    void findByBooker_IdAndEndIsAfterAndStartIsBeforeOrderByIdAsc() {
-        LocalDateTime now = now();
-        List<Booking> bookings = bookingRepository.findByBooker_IdAndEndIsAfterAndStartIsBeforeOrderByIdAsc(2L,
-                now, now);
+    void findBookingsAfter() {
+        List<BookingDtoBack> bookings = bookingRepository.findBookings(2L, Role.BOOKER, State.ALL, now(), 3L, PageRequest.of(0, 1));
         assertEquals(bookings.size(), 1);
-        assertEquals(bookings.get(0).getBooker().getId(), 2L);
-    }
-
-    @Test
-    void findByOwnerAndStartIsAfter() {
-        List<Booking> bookings = bookingRepository.findByOwnerAndStartIsAfter(1L, now());
+        assertEquals(bookings.get(0).getId(), 2L);
+        bookings = bookingRepository.findBookings(1L, Role.OWNER, State.ALL, now(), 2L, PageRequest.of(0, 5));
         assertEquals(bookings.size(), 1);
-        assertEquals(bookings.get(0).getItem().getOwner().getId(), 1L);
-    }
-
-    @Test
-    void findByOwnerAndEndIsBefore() {
-        List<Booking> bookings = bookingRepository.findByOwnerAndEndIsBefore(1L, now());
-        assertEquals(bookings.size(), 1);//1
-        assertEquals(bookings.get(0).getItem().getOwner().getId(), 1L);
+        assertEquals(bookings.get(0).getId(), 1L);
+        assertEquals(bookingRepository.findBookings(2L, Role.BOOKER, State.CURRENT, now(), 2L, PageRequest.of(0, 5))
+                .size(), 0);
     }
 
     @Test
-    void findByOwner_IdAndEndIsAfterAndStartIsBeforeOrderByIdAsc() {
-        List<Booking> bookings = bookingRepository.findByOwner_IdAndEndIsAfterAndStartIsBeforeOrderByIdAsc(1L, now());
-        assertEquals(bookings.size(), 1);
-        assertEquals(bookings.get(0).getItem().getOwner().getId(), 1L);
+    void findDtoByIdForUser() {
+        Booking booking = bookingRepository.findAll().get(0);
+        Optional<BookingDtoBack> byBooker = bookingRepository.findDtoByIdForUser(booking.getId(), 2L);
+        assertEquals(byBooker.get().getItem().getId(), booking.getItem().getId());
+        assertEquals(byBooker.get().getBooker().getId(), 2L);
+        assertEquals(bookingRepository.findDtoByIdForUser(booking.getId(), 1L).get().getId(), booking.getId());
+        assertEquals(bookingRepository.findDtoByIdForUser(booking.getId(), 3L).isPresent(), false);
     }
 
-
     @Test
     void findByItem_Id() {
         List<Booking> bookings = bookingRepository.findByItem_Id(1L);
@@ -167,17 +174,18 @@ class BookingRepositoryTest {
     }
 
     @Test
-    void findByOwnerAndStatus() {
-        List<Booking> bookings = bookingRepository.findByOwnerAndStatus(1L, Status.WAITING);
-        assertEquals(bookings.size(), 3);
-        assertEquals(bookings.get(0).getStatus(), Status.WAITING);
+    void findLastByItemIds() {
+        List<Booking> bookings = bookingRepository.findLastByItemIds(List.of(1L, 2L, 3L), now());
+        assertEquals(bookings.size(), 2);
+        assertEquals(bookings.get(0).getItem().getId(), 1L);
+        assertEquals(bookings.get(1).getItem().getId(), 2L);
     }
 
     @Test
-    void findByBooker_IdAndStatus() {
-        List<Booking> bookings = bookingRepository.findByBooker_IdAndStatus(2L, Status.WAITING);
-        assertEquals(bookings.size(), 3);
-        assertEquals(bookings.get(0).getStatus(), Status.WAITING);
+    void findNextByItemIds() {
+        List<Booking> bookings = bookingRepository.findNextByItemIds(List.of(1L, 2L, 3L), now());
+        assertEquals(bookings.size(), 1);
+        assertEquals(bookings.get(0).getItem().getId(), 3L);
     }
 
     @Test
@@ -0,0 +1,150 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingDtoBack;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.handler.exception.ValidationException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Concurrent booking writes through the real service and database.
+ */
+@Slf4j
+@SpringBootTest(properties = {"spring.jpa.show-sql=false",
+        "logging.level.org.springframework.transaction.interceptor=WARN",
+        "logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class BookingSequencerStressTest {
+    private static final int THREADS = 32;
+    private static final int REQUESTS = 200;
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private ExecutorService executor;
+    private User owner;
+    private final List<User> bookers = new ArrayList<>();
+    private final List<Item> items = new ArrayList<>();
+    private final LocalDateTime start = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+        owner = userRepository.save(User.builder().name("owner").email("owner@mail.com").build());
+        for (int i = 0; i < THREADS; i++) {
+            bookers.add(userRepository.save(User.builder().name("booker" + i).email("booker" + i + "@mail.com").build()));
+        }
+        for (int i = 0; i < 4; i++) {
+            items.add(itemRepository.save(Item.builder().name("thing" + i).description("thing").available(true)
+                    .owner(owner).build()));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void sameSlotIsBookedOnce() throws Exception {
+        List<Callable<BookingDtoBack>> requests = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            requests.add(book(items.get(0), bookers.get(i % THREADS), start, start.plusHours(2)));
+        }
+        int booked = count(executor.invokeAll(requests));
+        assertEquals(booked, 1);
+        assertEquals(bookingRepository.findByItem_Id(items.get(0).getId()).size(), 1);
+    }
+
+    @Test
+    void distinctSlotsAreAllBooked() throws Exception {
+        List<Callable<BookingDtoBack>> requests = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            LocalDateTime slot = start.plusHours(i);
+            requests.add(book(items.get(i % items.size()), bookers.get(i % THREADS), slot, slot.plusMinutes(30)));
+        }
+        long begin = System.nanoTime();
+        int booked = count(executor.invokeAll(requests));
+        long elapsed = System.nanoTime() - begin;
+        assertEquals(booked, REQUESTS);
+        assertEquals(bookingRepository.count(), REQUESTS);
+        log.info("bookings: {}, items: {}, threads: {}, {} bookings/s", REQUESTS, items.size(), THREADS,
+                REQUESTS * 1_000_000_000L / elapsed);
+    }
+
+    @Test
+    void overlappingWaitingBookingsAreNotBothApproved() throws Exception {
+        Item item = items.get(0);
+        List<Long> waiting = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            // saved past the service, like overlapping rows written before the overlap check existed
+            waiting.add(bookingRepository.save(Booking.builder().item(item).booker(bookers.get(i))
+                    .start(start.plusMinutes(i)).end(start.plusHours(2)).status(Status.WAITING).build()).getId());
+        }
+
+        List<Callable<BookingDtoBack>> approvals = new ArrayList<>();
+        for (Long bookingId : waiting) {
+            approvals.add(() -> bookingService.bookingUpdate(bookingId, owner.getId(), Status.APPROVED));
+        }
+        int approved = count(executor.invokeAll(approvals));
+        assertEquals(approved, 1);
+        assertEquals(bookingRepository.findByItem_Id(item.getId()).stream()
+                .filter(x -> x.getStatus() == Status.APPROVED).count(), 1L);
+    }
+
+    private Callable<BookingDtoBack> book(Item item, User booker, LocalDateTime from, LocalDateTime to) {
+        return () -> bookingService.addNewBooking(dto(item, booker, from, to));
+    }
+
+    private static BookingDto dto(Item item, User booker, LocalDateTime from, LocalDateTime to) {
+        return new BookingDto(null, from, to, item.getId(), booker.getId(), null);
+    }
+
+    private static int count(List<? extends Future<?>> results) throws InterruptedException {
+        int succeeded = 0;
+        for (Future<?> result : results) {
+            try {
+                result.get();
+                succeeded++;
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof ValidationException)) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+        return succeeded;
+    }
+}
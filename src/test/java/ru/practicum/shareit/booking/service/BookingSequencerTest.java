@@ -0,0 +1,141 @@
+package ru.practicum.shareit.booking.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import ru.practicum.shareit.handler.exception.ServiceUnavailableException;
+import ru.practicum.shareit.handler.exception.ValidationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingSequencerTest {
+    private PlatformTransactionManager transactionManager;
+    private BookingSequencer sequencer;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        sequencer = new BookingSequencer(transactionManager, 4, 100, 5000);
+        callers = Executors.newFixedThreadPool(32);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sequencer.shutdown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void submitSerializesOneItemAndBatches() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> sequencer.submit(1L, () -> {
+            blocked.countDown();
+            await(release);
+            return 0;
+        }), callers);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        List<CompletableFuture<Integer>> queued = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            int value = i;
+            queued.add(CompletableFuture.supplyAsync(() -> sequencer.submit(1L, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                LockSupport.parkNanos(100_000);
+                running.decrementAndGet();
+                return value;
+            }), callers));
+        }
+        Thread.sleep(200);
+        release.countDown();
+
+        assertEquals(first.get(5, TimeUnit.SECONDS), 0);
+        for (int i = 0; i < queued.size(); i++) {
+            assertEquals(queued.get(i).get(5, TimeUnit.SECONDS), i + 1);
+        }
+        assertEquals(maxRunning.get(), 1);
+        verify(transactionManager, atLeast(2)).commit(any());
+        verify(transactionManager, atMost(3)).commit(any());
+    }
+
+    @Test
+    void submitRunsItemsInParallel() throws Exception {
+        CountDownLatch both = new CountDownLatch(2);
+        CompletableFuture<Boolean> one = CompletableFuture.supplyAsync(() -> sequencer.submit(1L, () -> {
+            both.countDown();
+            return await(both);
+        }), callers);
+        CompletableFuture<Boolean> two = CompletableFuture.supplyAsync(() -> sequencer.submit(2L, () -> {
+            both.countDown();
+            return await(both);
+        }), callers);
+        assertTrue(one.get(5, TimeUnit.SECONDS));
+        assertTrue(two.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submitFailsOnlyTheFailedCommand() {
+        assertThrows(ValidationException.class, () -> sequencer.submit(1L, () -> {
+            throw new ValidationException("Вещь уже забронирована на это время");
+        }));
+        assertThrows(IllegalStateException.class, () -> sequencer.submit(1L, () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(sequencer.submit(1L, () -> 1), 1);
+    }
+
+    @Test
+    void submitTimesOutAndDropsTheQueuedCommand() throws Exception {
+        BookingSequencer impatient = new BookingSequencer(transactionManager, 4, 100, 100);
+        try {
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicInteger queuedRuns = new AtomicInteger();
+            CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> impatient.submit(1L, () -> {
+                blocked.countDown();
+                return await(release);
+            }), callers);
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            assertThrows(ServiceUnavailableException.class, () -> impatient.submit(1L, queuedRuns::incrementAndGet));
+            release.countDown();
+            assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            assertEquals(impatient.submit(1L, () -> 1), 1);
+            assertEquals(queuedRuns.get(), 0);
+        } finally {
+            impatient.shutdown();
+        }
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package ru.practicum.shareit.booking.service;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import ru.practicum.shareit.booking.Role;
+import ru.practicum.shareit.booking.State;
 import ru.practicum.shareit.booking.Status;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoBack;
+import ru.practicum.shareit.booking.dto.BookingPage;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
@@ -25,11 +30,12 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,10 +47,20 @@ class BookingServiceImplTest {
     UserRepository userRepository;
     @Mock
     BookingRepository bookingRepository;
+    @Mock
+    BookingTimelineIndex bookingTimeline;
+    @Mock
+    BookingSequencer sequencer;
 
     @InjectMocks
     BookingServiceImpl bookingService;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(sequencer.submit(any(), any())).thenAnswer(x -> x.getArgument(1, Supplier.class).get());
+        lenient().when(bookingRepository.findItemIdById(any())).thenReturn(Optional.of(1L));
+    }
+
     @Test
     void addNewBookingUserNotOwnerValid() {
 
@@ -54,7 +70,7 @@ class BookingServiceImplTest {
         User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
         User user = User.builder().name("an").email("an@com").id(userId).build();
 
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId).comments(new ArrayList<>()).available(true).build();
+        ItemDto itemDto = ItemDto.builder().id(1L).name("thing").description("thing").owner(ownerId).comments(new ArrayList<>()).available(true).build();
         Item item = ItemMapper.toDtoItem(itemDto, owner);
 
 
@@ -64,11 +80,11 @@ class BookingServiceImplTest {
                 .status(Status.WAITING).start(start).end(end).id(bookingId).build();
         BookingDto bookingDto = BookingMapper.toBookingDto(booking);
 
-        when(itemRepository.findById(any())).thenReturn(Optional.of(item));
+        when(itemRepository.findByIdForUpdate(any())).thenReturn(Optional.of(item));
         when(userRepository.findById(any())).thenReturn(Optional.of(user));
         when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
-        Booking actualBooking = bookingService.addNewBooking(bookingDto);
-        assertEquals(booking, actualBooking);
+        BookingDtoBack actualBooking = bookingService.addNewBooking(bookingDto);
+        assertEquals(BookingMapper.toBookingDtoBack(booking), actualBooking);
         verify(bookingRepository).save(booking);
     }
 
@@ -82,7 +98,7 @@ class BookingServiceImplTest {
 
         User user = User.builder().name("an").email("an@com").id(userId).build();
 
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId).comments(new ArrayList<>()).available(true).build();
+        ItemDto itemDto = ItemDto.builder().id(1L).name("thing").description("thing").owner(ownerId).comments(new ArrayList<>()).available(true).build();
         Item item = ItemMapper.toDtoItem(itemDto, user);
 
 
@@ -92,7 +108,7 @@ class BookingServiceImplTest {
                 .status(Status.WAITING).start(start).end(end).id(bookingId).build();
         BookingDto bookingDto = BookingMapper.toBookingDto(booking);
 
-        when(itemRepository.findById(any())).thenReturn(Optional.of(item));
+        when(itemRepository.findByIdForUpdate(any())).thenReturn(Optional.of(item));
         when(userRepository.findById(any())).thenReturn(Optional.of(user));
         assertThrows(ObjectNotFoundException.class, () -> bookingService.addNewBooking(bookingDto));
 
@@ -108,7 +124,7 @@ class BookingServiceImplTest {
         User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
         User user = User.builder().name("an").email("an@com").id(userId).build();
 
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId).comments(new ArrayList<>()).available(false).build();
+        ItemDto itemDto = ItemDto.builder().id(1L).name("thing").description("thing").owner(ownerId).comments(new ArrayList<>()).available(false).build();
         Item item = ItemMapper.toDtoItem(itemDto, owner);
 
         LocalDateTime start = LocalDateTime.now().minusDays(2);
@@ -117,7 +133,7 @@ class BookingServiceImplTest {
                 .status(Status.WAITING).start(start).end(end).id(bookingId).build();
         BookingDto bookingDto = BookingMapper.toBookingDto(booking);
 
-        when(itemRepository.findById(any())).thenReturn(Optional.of(item));
+        when(itemRepository.findByIdForUpdate(any())).thenReturn(Optional.of(item));
         when(userRepository.findById(any())).thenReturn(Optional.of(user));
         assertThrows(ValidationException.class, () -> bookingService.addNewBooking(bookingDto));
 
@@ -126,277 +142,83 @@ class BookingServiceImplTest {
 
 
     @Test
-    void getBookingOwnerOrCreatorValid() {
-        Long bookingId = 0L;
-        Long ownerId = 1L;
+    void addNewBookingOverlapping() {
         Long userId = 0L;
-        User user = User.builder().name("an").email("an@com").id(userId).build();
-
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId).comments(new ArrayList<>()).available(true).build();
-        Item item = ItemMapper.toDtoItem(itemDto, user);
-        LocalDateTime start = LocalDateTime.now().minusDays(2);
-        LocalDateTime end = LocalDateTime.now().minusDays(1);
-        Booking booking = Booking.builder().item(item).booker(user)
-                .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        when(bookingRepository.findById(bookingId)).thenReturn(Optional.of(booking));
-        assertEquals(BookingMapper.toBookingDtoBack(booking), bookingService.getBooking(bookingId, userId));
-        verify(bookingRepository).findById(bookingId);
-    }
-
-    @Test
-    void getBookingNotOwnerOrCreatorException() {
-        Long bookingId = 0L;
         Long ownerId = 1L;
-        Long otherUser = 3L;
-        Long userId = 0L;
-        User user = User.builder().name("an").email("an@com").id(userId).build();
-
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId).comments(new ArrayList<>()).available(true).build();
-        Item item = ItemMapper.toDtoItem(itemDto, user);
-        LocalDateTime start = LocalDateTime.now().minusDays(2);
-        LocalDateTime end = LocalDateTime.now().minusDays(1);
-        Booking booking = Booking.builder().item(item).booker(user)
-                .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        when(bookingRepository.findById(bookingId)).thenReturn(Optional.of(booking));
-        assertThrows(ObjectNotFoundException.class, () -> bookingService.getBooking(bookingId, otherUser));
-    }
-
-    @Test
-    void getBookingOwnerWithOwner() {
-        Long bookingId = 0L;
-        Long ownerId = 1L;
-        Long userId = 0L;
-        User user = User.builder().name("an").email("an@com").id(userId).build();
-        User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId)
-                .comments(new ArrayList<>()).available(true).build();
-        Item item = ItemMapper.toDtoItem(itemDto, owner);
-        LocalDateTime start = LocalDateTime.now().minusDays(2);
-        LocalDateTime end = LocalDateTime.now().minusDays(1);
-        Booking booking = Booking.builder().item(item).booker(user)
-                .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        List<Booking> bookings = new ArrayList<>();
-        bookings.add(booking);
-        when(userRepository.findById(any())).thenReturn(Optional.of(owner));
-        when(bookingRepository.findByOwner(ownerId)).thenReturn(bookings);
-        assertEquals(bookings.stream().map(BookingMapper::toBookingDtoBack)
-                .collect(Collectors.toList()), bookingService.getBookingOwner(ownerId));
-        verify(bookingRepository).findByOwner(ownerId);
-    }
-
-
-    @Test
-    void getBookingBooker() {
-        Long bookingId = 0L;
-        Long ownerId = 1L;
-        Long userId = 0L;
-        User user = User.builder().name("an").email("an@com").id(userId).build();
         User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId)
-                .comments(new ArrayList<>()).available(true).build();
-        Item item = ItemMapper.toDtoItem(itemDto, owner);
-        LocalDateTime start = LocalDateTime.now().minusDays(2);
-        LocalDateTime end = LocalDateTime.now().minusDays(1);
-        Booking booking = Booking.builder().item(item).booker(user)
-                .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        List<Booking> bookings = new ArrayList<>();
-        bookings.add(booking);
-        when(userRepository.findById(any())).thenReturn(Optional.of(owner));
-        when(bookingRepository.findByBooker(userId)).thenReturn(bookings);
-        assertEquals(bookings.stream().map(BookingMapper::toBookingDtoBack)
-                .collect(Collectors.toList()), bookingService.getBookingBooker(userId));
-        verify(bookingRepository).findByBooker(userId);
-    }
-
-    @Test
-    void getAllOwnBookingPaged() {
-        Long bookingId = 0L;
-        Long ownerId = 1L;
-        Long userId = 0L;
         User user = User.builder().name("an").email("an@com").id(userId).build();
-        User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId)
-                .comments(new ArrayList<>()).available(true).build();
-        Item item = ItemMapper.toDtoItem(itemDto, owner);
-        LocalDateTime start = LocalDateTime.now().minusDays(2);
-        LocalDateTime end = LocalDateTime.now().minusDays(1);
-        Booking booking = Booking.builder().item(item).booker(user)
-                .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        List<Booking> bookings = new ArrayList<>();
+        Item item = Item.builder().id(1L).name("thing").description("thing").owner(owner).available(true).build();
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        LocalDateTime end = LocalDateTime.now().plusDays(3);
+        BookingDto bookingDto = BookingMapper.toBookingDto(Booking.builder().item(item).booker(user)
+                .start(start).end(end).build());
 
-        bookings.add(booking);
-        Long from = 1L;
-        Long size = 20L;
-        PageRequest page = PageRequest.of(from.intValue() > 0 ? from.intValue() / size.intValue() : 0, size.intValue());
+        when(itemRepository.findByIdForUpdate(any())).thenReturn(Optional.of(item));
         when(userRepository.findById(any())).thenReturn(Optional.of(user));
-        when(bookingRepository.findByOwnerPaged(userId, page)).thenReturn(bookings);
-
-        assertEquals(BookingMapper.toBookingDtoBack(booking), bookingService.getAllOwnBookingPaged(userId, from, size).get(0));
-        verify(bookingRepository).findByOwnerPaged(userId, page);
-
+        when(bookingRepository.findLastEndStartingBefore(eq(1L), eq(Status.WAITING), eq(end), any()))
+                .thenReturn(List.of(start.plusHours(1)));
+        assertThrows(ValidationException.class, () -> bookingService.addNewBooking(bookingDto));
+        verify(bookingRepository, never()).save(any());
     }
 
     @Test
-    void getAllBookingPaged() {
-        Long bookingId = 0L;
-        Long ownerId = 1L;
+    void addNewBookingAfterPreviousEnds() {
         Long userId = 0L;
-        User user = User.builder().name("an").email("an@com").id(userId).build();
-        User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId)
-                .comments(new ArrayList<>()).available(true).build();
-        Item item = ItemMapper.toDtoItem(itemDto, owner);
-        LocalDateTime start = LocalDateTime.now().minusDays(2);
-        LocalDateTime end = LocalDateTime.now().minusDays(1);
-        Booking booking = Booking.builder().item(item).booker(user)
-                .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        List<Booking> bookings = new ArrayList<>();
-
-
-        bookings.add(booking);
-        Long from = 1L;
-        Long size = 20L;
-
-        PageRequest page = PageRequest.of(from.intValue() > 0 ? from.intValue() / size.intValue() : 0, size.intValue());
-        when(bookingRepository.findByBookerPaged(userId, page)).thenReturn(bookings);
-
-        assertEquals(BookingMapper.toBookingDtoBack(booking), bookingService.getAllBookingPaged(userId, from, size).get(0));
-        verify(bookingRepository).findByBookerPaged(userId, page);
-
-    }
-
-    @Test
-    void getBookingBookerFuture() {
-        Long bookingId = 0L;
         Long ownerId = 1L;
-        Long userId = 0L;
-        User user = User.builder().name("an").email("an@com").id(userId).build();
         User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId)
-                .comments(new ArrayList<>()).available(true).build();
-        Item item = ItemMapper.toDtoItem(itemDto, owner);
-        LocalDateTime now = LocalDateTime.now();
+        User user = User.builder().name("an").email("an@com").id(userId).build();
+        Item item = Item.builder().id(1L).name("thing").description("thing").owner(owner).available(true).build();
         LocalDateTime start = LocalDateTime.now().plusDays(1);
-        LocalDateTime end = LocalDateTime.now().plusDays(2);
-        Booking booking = Booking.builder().item(item).booker(user)
-                .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        List<Booking> bookings = new ArrayList<>();
-        bookings.add(booking);
-        when(bookingRepository.findByBooker_IdAndStartIsAfterOrderByIdDesc(userId, now)).thenReturn(bookings);
-        assertEquals(BookingMapper.toBookingDtoBack(booking), bookingService.getBookingBookerFuture(userId, now).get(0));
-        verify(bookingRepository).findByBooker_IdAndStartIsAfterOrderByIdDesc(userId, now);
+        LocalDateTime end = LocalDateTime.now().plusDays(3);
+        Booking booking = Booking.builder().item(item).booker(user).status(Status.WAITING).start(start).end(end).build();
 
+        when(itemRepository.findByIdForUpdate(any())).thenReturn(Optional.of(item));
+        when(userRepository.findById(any())).thenReturn(Optional.of(user));
+        when(bookingRepository.findLastEndStartingBefore(eq(1L), any(), eq(end), any())).thenReturn(List.of(start));
+        when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
+        assertEquals(bookingService.addNewBooking(BookingMapper.toBookingDto(booking)), BookingMapper.toBookingDtoBack(booking));
+        verify(bookingRepository).save(booking);
     }
 
     @Test
-    void getBookingBookerPast() {
+    void getBookingOwnerOrCreatorValid() {
         Long bookingId = 0L;
         Long ownerId = 1L;
         Long userId = 0L;
         User user = User.builder().name("an").email("an@com").id(userId).build();
-        User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId)
-                .comments(new ArrayList<>()).available(true).build();
-        Item item = ItemMapper.toDtoItem(itemDto, owner);
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime start = LocalDateTime.now().minusDays(3);
-        LocalDateTime end = LocalDateTime.now().plusDays(2);
-        Booking booking = Booking.builder().item(item).booker(user)
-                .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        List<Booking> bookings = new ArrayList<>();
-        bookings.add(booking);
-        when(bookingRepository.findByBooker_IdAndEndIsBeforeOrderByIdDesc(userId, now)).thenReturn(bookings);
-        assertEquals(BookingMapper.toBookingDtoBack(booking), bookingService.getBookingBookerPast(userId, now).get(0));
-        verify(bookingRepository).findByBooker_IdAndEndIsBeforeOrderByIdDesc(userId, now);
-    }
 
-    @Test
-    void getBookingBookerCurrent() {
-        Long bookingId = 0L;
-        Long ownerId = 1L;
-        Long userId = 0L;
-        User user = User.builder().name("an").email("an@com").id(userId).build();
-        User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId)
-                .comments(new ArrayList<>()).available(true).build();
-        Item item = ItemMapper.toDtoItem(itemDto, owner);
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime start = LocalDateTime.now().minusDays(3);
-        LocalDateTime end = LocalDateTime.now().plusDays(2);
+        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId).comments(new ArrayList<>()).available(true).build();
+        Item item = ItemMapper.toDtoItem(itemDto, user);
+        LocalDateTime start = LocalDateTime.now().minusDays(2);
+        LocalDateTime end = LocalDateTime.now().minusDays(1);
         Booking booking = Booking.builder().item(item).booker(user)
                 .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        List<Booking> bookings = new ArrayList<>();
-        bookings.add(booking);
-        when(bookingRepository.findByBooker_IdAndEndIsAfterAndStartIsBeforeOrderByIdAsc(userId, now, now)).thenReturn(bookings);
-        assertEquals(BookingMapper.toBookingDtoBack(booking), bookingService.getBookingBookerCurrent(userId, now).get(0));
-        verify(bookingRepository).findByBooker_IdAndEndIsAfterAndStartIsBeforeOrderByIdAsc(userId, now, now);
+        when(bookingRepository.findDtoByIdForUser(bookingId, userId)).thenReturn(Optional.of(BookingMapper.toBookingDtoBack(booking)));
+        assertEquals(BookingMapper.toBookingDtoBack(booking), bookingService.getBooking(bookingId, userId));
+        verify(bookingRepository).findDtoByIdForUser(bookingId, userId);
     }
 
     @Test
-    void getBookingOwnerFuture() {
+    void getBookingNotOwnerOrCreatorException() {
         Long bookingId = 0L;
         Long ownerId = 1L;
+        Long otherUser = 3L;
         Long userId = 0L;
         User user = User.builder().name("an").email("an@com").id(userId).build();
-        User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId)
-                .comments(new ArrayList<>()).available(true).build();
-        Item item = ItemMapper.toDtoItem(itemDto, owner);
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime start = LocalDateTime.now().plusDays(1);
-        LocalDateTime end = LocalDateTime.now().plusDays(2);
-        Booking booking = Booking.builder().item(item).booker(user)
-                .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        List<Booking> bookings = new ArrayList<>();
-        bookings.add(booking);
-        when(bookingRepository.findByOwnerAndStartIsAfter(ownerId, now)).thenReturn(bookings);
-        assertEquals(BookingMapper.toBookingDtoBack(booking), bookingService.getBookingOwnerFuture(ownerId, now).get(0));
-        verify(bookingRepository).findByOwnerAndStartIsAfter(ownerId, now);
-    }
 
-    @Test
-    void getBookingOwnerPast() {
-        Long bookingId = 0L;
-        Long ownerId = 1L;
-        Long userId = 0L;
-        User user = User.builder().name("an").email("an@com").id(userId).build();
-        User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId)
-                .comments(new ArrayList<>()).available(true).build();
-        Item item = ItemMapper.toDtoItem(itemDto, owner);
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime start = LocalDateTime.now().minusDays(3);
-        LocalDateTime end = LocalDateTime.now().plusDays(2);
+        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId).comments(new ArrayList<>()).available(true).build();
+        Item item = ItemMapper.toDtoItem(itemDto, user);
+        LocalDateTime start = LocalDateTime.now().minusDays(2);
+        LocalDateTime end = LocalDateTime.now().minusDays(1);
         Booking booking = Booking.builder().item(item).booker(user)
                 .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        List<Booking> bookings = new ArrayList<>();
-        bookings.add(booking);
-        when(bookingRepository.findByOwnerAndEndIsBefore(ownerId, now)).thenReturn(bookings);
-        assertEquals(BookingMapper.toBookingDtoBack(booking), bookingService.getBookingOwnerPast(ownerId, now).get(0));
-        verify(bookingRepository).findByOwnerAndEndIsBefore(ownerId, now);
+        when(bookingRepository.findDtoByIdForUser(bookingId, otherUser)).thenReturn(Optional.empty());
+        when(bookingRepository.existsById(bookingId)).thenReturn(true);
+        ObjectNotFoundException e = assertThrows(ObjectNotFoundException.class,
+                () -> bookingService.getBooking(bookingId, otherUser));
+        assertEquals(e.getMessage(), "Пользователь не является инициатором бронирования или хозяином вещи");
     }
 
-    @Test
-    void getBookingOwnerCurrent() {
-        Long bookingId = 0L;
-        Long ownerId = 1L;
-        Long userId = 0L;
-        User user = User.builder().name("an").email("an@com").id(userId).build();
-        User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId)
-                .comments(new ArrayList<>()).available(true).build();
-        Item item = ItemMapper.toDtoItem(itemDto, owner);
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime start = LocalDateTime.now().minusDays(3);
-        LocalDateTime end = LocalDateTime.now().plusDays(2);
-        Booking booking = Booking.builder().item(item).booker(user)
-                .status(Status.WAITING).start(start).end(end).id(bookingId).build();
-        List<Booking> bookings = new ArrayList<>();
-        bookings.add(booking);
-        when(bookingRepository.findByOwner_IdAndEndIsAfterAndStartIsBeforeOrderByIdAsc(ownerId, now)).thenReturn(bookings);
-        assertEquals(BookingMapper.toBookingDtoBack(booking), bookingService.getBookingOwnerCurrent(ownerId, now).get(0));
-        verify(bookingRepository).findByOwner_IdAndEndIsAfterAndStartIsBeforeOrderByIdAsc(ownerId, now);
-    }
 
     @Test
     void bookingUpdateByOwnerValidBehavior() {
@@ -415,7 +237,7 @@ class BookingServiceImplTest {
         Booking booking = Booking.builder().item(item).booker(user)
                 .status(status).start(start).end(end).id(bookingId).build();
         when(userRepository.findById(any())).thenReturn(Optional.of(owner));
-        when(bookingRepository.findById(bookingId)).thenReturn(Optional.of(booking));
+        when(bookingRepository.findByIdFetchItemAndBooker(bookingId)).thenReturn(Optional.of(booking));
         when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
         BookingDtoBack actualBookingDtoBack = bookingService.bookingUpdate(bookingId, ownerId, status);
         assertEquals(BookingMapper.toBookingDtoBack(booking), actualBookingDtoBack);
@@ -439,7 +261,7 @@ class BookingServiceImplTest {
         Booking booking = Booking.builder().item(item).booker(user)
                 .status(status).start(start).end(end).id(bookingId).build();
         when(userRepository.findById(any())).thenReturn(Optional.of(user));
-        when(bookingRepository.findById(bookingId)).thenReturn(Optional.of(booking));
+        when(bookingRepository.findByIdFetchItemAndBooker(bookingId)).thenReturn(Optional.of(booking));
         assertThrows(ObjectNotFoundException.class, () -> bookingService.bookingUpdate(bookingId, userId, status));
         verify(bookingRepository, never()).save(booking);
     }
@@ -461,58 +283,125 @@ class BookingServiceImplTest {
         Booking booking = Booking.builder().item(item).booker(user)
                 .status(status).start(start).end(end).id(bookingId).build();
         when(userRepository.findById(any())).thenReturn(Optional.of(owner));
-        when(bookingRepository.findById(bookingId)).thenReturn(Optional.of(booking));
+        when(bookingRepository.findByIdFetchItemAndBooker(bookingId)).thenReturn(Optional.of(booking));
         assertThrows(ValidationException.class, () -> bookingService.bookingUpdate(bookingId, ownerId, status));
         verify(bookingRepository, never()).save(booking);
     }
 
 
     @Test
-    void getBookingOwnerStatus() {
+    void bookingUpdateRejectedToApprovedOverlapping() {
         Long bookingId = 0L;
         Long ownerId = 1L;
-        Long userId = 0L;
-        Status status = Status.WAITING;
-        User user = User.builder().name("an").email("an@com").id(userId).build();
+        User user = User.builder().name("an").email("an@com").id(0L).build();
         User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId)
-                .comments(new ArrayList<>()).available(true).build();
-        Item item = ItemMapper.toDtoItem(itemDto, owner);
-
-        LocalDateTime start = LocalDateTime.now().minusDays(3);
+        Item item = Item.builder().id(1L).name("thing").description("thing").owner(owner).available(true).build();
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
         LocalDateTime end = LocalDateTime.now().plusDays(2);
         Booking booking = Booking.builder().item(item).booker(user)
-                .status(status).start(start).end(end).id(bookingId).build();
-        List<Booking> bookings = new ArrayList<>();
-        bookings.add(booking);
+                .status(Status.REJECTED).start(start).end(end).id(bookingId).build();
         when(userRepository.findById(any())).thenReturn(Optional.of(owner));
-        when(bookingRepository.findByOwnerAndStatus(ownerId, status)).thenReturn(bookings);
-        assertEquals(BookingMapper.toBookingDtoBack(booking), bookingService.getBookingOwnerStatus(ownerId, status).get(0));
-        verify(bookingRepository).findByOwnerAndStatus(ownerId, status);
-
+        when(bookingRepository.findByIdFetchItemAndBooker(bookingId)).thenReturn(Optional.of(booking));
+        when(bookingRepository.findLastEndStartingBefore(eq(1L), eq(Status.WAITING), eq(end), any()))
+                .thenReturn(List.of(start));
+        when(bookingRepository.findLastEndStartingBefore(eq(1L), eq(Status.APPROVED), eq(end), any()))
+                .thenReturn(List.of(end));
+        assertThrows(ValidationException.class, () -> bookingService.bookingUpdate(bookingId, ownerId, Status.APPROVED));
+        verify(itemRepository).findByIdForUpdate(1L);
+        verify(bookingRepository, never()).save(booking);
     }
 
     @Test
-    void getBookingBookerStatus() {
+    void bookingUpdateWaitingToApprovedOverlappingApproved() {
         Long bookingId = 0L;
+        Long ownerId = 1L;
+        User user = User.builder().name("an").email("an@com").id(0L).build();
+        User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
+        Item item = Item.builder().id(1L).name("thing").description("thing").owner(owner).available(true).build();
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        LocalDateTime end = LocalDateTime.now().plusDays(2);
+        Booking booking = Booking.builder().item(item).booker(user)
+                .status(Status.WAITING).start(start).end(end).id(bookingId).build();
+        when(userRepository.findById(any())).thenReturn(Optional.of(owner));
+        when(bookingRepository.findByIdFetchItemAndBooker(bookingId)).thenReturn(Optional.of(booking));
+        when(bookingRepository.findLastEndStartingBefore(eq(1L), eq(Status.APPROVED), eq(end), any()))
+                .thenReturn(List.of(start.plusHours(1)));
+        assertThrows(ValidationException.class, () -> bookingService.bookingUpdate(bookingId, ownerId, Status.APPROVED));
+        verify(itemRepository).findByIdForUpdate(1L);
+        verify(bookingRepository, never()).findLastEndStartingBefore(any(), eq(Status.WAITING), any(), any());
+        verify(bookingRepository, never()).save(booking);
+    }
+
+    @Test
+    void getBookingsOwner() {
         Long ownerId = 1L;
         Long userId = 0L;
-        Status status = Status.WAITING;
         User user = User.builder().name("an").email("an@com").id(userId).build();
         User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
         ItemDto itemDto = ItemDto.builder().name("thing").description("thing").owner(ownerId)
                 .comments(new ArrayList<>()).available(true).build();
         Item item = ItemMapper.toDtoItem(itemDto, owner);
+        Booking booking = Booking.builder().item(item).booker(user).status(Status.WAITING)
+                .start(LocalDateTime.now().minusDays(2)).end(LocalDateTime.now().minusDays(1)).id(0L).build();
+        when(userRepository.existsById(ownerId)).thenReturn(true);
+        when(bookingRepository.findBookings(eq(ownerId), eq(Role.OWNER), eq(State.PAST), any(), eq(null), eq(Pageable.unpaged())))
+                .thenReturn(List.of(BookingMapper.toBookingDtoBack(booking)));
+
+        assertEquals(bookingService.getBookings(ownerId, Role.OWNER, State.PAST, null, null),
+                List.of(BookingMapper.toBookingDtoBack(booking)));
+    }
 
-        LocalDateTime start = LocalDateTime.now().minusDays(3);
-        LocalDateTime end = LocalDateTime.now().plusDays(2);
-        Booking booking = Booking.builder().item(item).booker(user)
-                .status(status).start(start).end(end).id(bookingId).build();
-        List<Booking> bookings = new ArrayList<>();
-        bookings.add(booking);
-        when(userRepository.findById(any())).thenReturn(Optional.of(user));
-        when(bookingRepository.findByBooker_IdAndStatus(userId, status)).thenReturn(bookings);
-        assertEquals(BookingMapper.toBookingDtoBack(booking), bookingService.getBookingBookerStatus(userId, status).get(0));
-        verify(bookingRepository).findByBooker_IdAndStatus(userId, status);
+    @Test
+    void getBookingsBookerPaged() {
+        Long userId = 0L;
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(bookingRepository.findBookings(eq(userId), eq(Role.BOOKER), eq(State.WAITING), any(), any(), any()))
+                .thenReturn(List.of());
+
+        assertEquals(bookingService.getBookings(userId, Role.BOOKER, State.WAITING, 5L, 2L).size(), 0);
+        verify(bookingRepository).findBookings(eq(userId), eq(Role.BOOKER), eq(State.WAITING), any(), eq(null),
+                eq(PageRequest.of(2, 2)));
+    }
+
+    @Test
+    void getBookingsUserNotFound() {
+        when(userRepository.existsById(any())).thenReturn(false);
+
+        assertThrows(ObjectNotFoundException.class,
+                () -> bookingService.getBookings(99L, Role.OWNER, State.ALL, null, null));
+        verify(bookingRepository, never()).findBookings(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void getBookingsPage() {
+        Long userId = 0L;
+        User user = User.builder().name("an").email("an@com").id(userId).build();
+        User owner = User.builder().name("anl").email("anl@com").id(1L).build();
+        Item item = ItemMapper.toDtoItem(ItemDto.builder().name("thing").description("thing").owner(1L)
+                .comments(new ArrayList<>()).available(true).build(), owner);
+        List<BookingDtoBack> bookings = new ArrayList<>();
+        for (long id = 9; id > 6; id--) {
+            bookings.add(BookingMapper.toBookingDtoBack(Booking.builder().item(item).booker(user).status(Status.WAITING)
+                    .start(LocalDateTime.now().plusDays(1)).end(LocalDateTime.now().plusDays(2)).id(id).build()));
+        }
+        String cursor = new BookingCursor(10L).encode();
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(bookingRepository.findBookings(eq(userId), eq(Role.BOOKER), eq(State.ALL), any(), eq(10L),
+                eq(PageRequest.of(0, 3)))).thenReturn(bookings);
+
+        BookingPage page = bookingService.getBookingsPage(userId, Role.BOOKER, State.ALL, cursor, 2);
+        assertEquals(page.getBookings().size(), 2);
+        assertEquals(page.getBookings().get(1).getId(), 8L);
+        assertEquals(BookingCursor.decode(page.getNext()).getId(), 8L);
+    }
+
+    @Test
+    void getBookingsPageLastPageHasNoNext() {
+        when(userRepository.existsById(any())).thenReturn(true);
+        when(bookingRepository.findBookings(any(), any(), any(), any(), any(), any())).thenReturn(List.of());
+
+        assertEquals(bookingService.getBookingsPage(0L, Role.OWNER, State.ALL, null, 2).getNext(), null);
+        assertThrows(ValidationException.class,
+                () -> bookingService.getBookingsPage(0L, Role.OWNER, State.ALL, "not a cursor", 2));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,73 @@
+package ru.practicum.shareit.booking.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookingTimelineIndexTest {
+    @Mock
+    BookingRepository bookingRepository;
+    @InjectMocks
+    BookingTimelineIndex bookingTimeline;
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private final User booker = User.builder().id(2L).name("an").email("an@com").build();
+    private final Item item = Item.builder().id(1L).name("thing").description("thing").available(true).build();
+
+    private Booking booking(Long id, long startDays, Status status) {
+        return Booking.builder().id(id).item(item).booker(booker).status(status)
+                .start(now.plusDays(startDays)).end(now.plusDays(startDays).plusHours(1)).build();
+    }
+
+    @Test
+    void rebuild() {
+        when(bookingRepository.findByStatusFetchItemAndBooker(Status.APPROVED))
+                .thenReturn(List.of(booking(1L, -3, Status.APPROVED), booking(2L, -1, Status.APPROVED),
+                        booking(3L, 1, Status.APPROVED), booking(4L, 3, Status.APPROVED)));
+        bookingTimeline.rebuild();
+        assertEquals(bookingTimeline.findLast(1L, now).getId(), 2L);
+        assertEquals(bookingTimeline.findNext(1L, now).getId(), 3L);
+        assertNull(bookingTimeline.findLast(5L, now));
+    }
+
+    @Test
+    void rebuildKeepsChangesAppliedWhileLoading() {
+        bookingTimeline.update(booking(1L, -1, Status.APPROVED));
+        when(bookingRepository.findByStatusFetchItemAndBooker(Status.APPROVED)).thenAnswer(x -> {
+            bookingTimeline.update(booking(3L, 1, Status.REJECTED));
+            bookingTimeline.update(booking(5L, 2, Status.APPROVED));
+            assertEquals(bookingTimeline.findLast(1L, now).getId(), 1L);
+            return List.of(booking(1L, -1, Status.APPROVED), booking(3L, 1, Status.APPROVED),
+                    booking(4L, 3, Status.APPROVED));
+        });
+        bookingTimeline.rebuild();
+        assertEquals(bookingTimeline.findLast(1L, now).getId(), 1L);
+        assertEquals(bookingTimeline.findNext(1L, now).getId(), 5L);
+    }
+
+    @Test
+    void update() {
+        bookingTimeline.update(booking(1L, 1, Status.WAITING));
+        assertNull(bookingTimeline.findNext(1L, now));
+        bookingTimeline.update(booking(1L, 1, Status.APPROVED));
+        assertEquals(bookingTimeline.findNext(1L, now).getId(), 1L);
+        bookingTimeline.update(booking(1L, 1, Status.REJECTED));
+        assertNull(bookingTimeline.findNext(1L, now));
+        assertNull(bookingTimeline.findLast(1L, now));
+    }
+}
@@ -13,23 +13,31 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import ru.practicum.shareit.comment.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemImportResult;
+import ru.practicum.shareit.item.dto.ItemSearchPage;
 import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -222,6 +230,45 @@ class ItemControllerTest {
     }
 
 
+    @SneakyThrows
+    @Test
+    void addBatch() {
+        Long userId = 0L;
+        ItemDto item = ItemDto.builder().available(true).description("thing").name("thing").build();
+        List<ItemDto> items = Arrays.asList(item, null);
+        Mockito.when(itemService.addItems(userId, items))
+                .thenReturn(List.of(new ItemImportResult(0, 1L, null), new ItemImportResult(1, null, "Некорректный предмет")));
+        mockMvc.perform(MockMvcRequestBuilders.post("/items/batch")
+                .content("[" + objectMapper.writeValueAsString(item) + ", {\"name\": \"saw\", \"available\": \"maybe\"}]")
+                .contentType("application/json")
+                .characterEncoding(StandardCharsets.UTF_8)
+                .header("x-sharer-user-id", userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[1].error", is("Некорректный предмет")));
+        verify(itemService).addItems(userId, items);
+        verify(userService, never()).getUser(any());
+    }
+
+    @SneakyThrows
+    @Test
+    void addBatchNdjson() {
+        Long userId = 0L;
+        ItemDto item = ItemDto.builder().available(true).description("thing").name("thing").build();
+        List<ItemDto> read = new ArrayList<>();
+        Mockito.when(itemService.addItems(eq(userId), any())).thenAnswer(x -> {
+            x.<Iterable<ItemDto>>getArgument(1).forEach(read::add);
+            return List.of();
+        });
+        mockMvc.perform(MockMvcRequestBuilders.post("/items/batch")
+                .content(objectMapper.writeValueAsString(item) + "\n{broken\n\n" + objectMapper.writeValueAsString(item) + "\n")
+                .contentType("application/x-ndjson")
+                .characterEncoding(StandardCharsets.UTF_8)
+                .header("x-sharer-user-id", userId))
+                .andExpect(status().isOk());
+        assertEquals(read, Arrays.asList(item, null, item));
+    }
+
     @SneakyThrows
     @Test
     void updateItem() {
@@ -238,14 +285,15 @@ class ItemControllerTest {
         ItemDto itemDtoUpdate = ItemDto.builder().available(true).owner(userId).id(1L)
                 .description("new thing").name("thing").build();
 
-        Mockito.when(userService.getUser(userId)).thenReturn(userDto);
-        Mockito.when(itemService.getItem(itemId, userId)).thenReturn(itemDtoUpdate);
+        Mockito.when(itemService.updateItem(fields, userId, itemId)).thenReturn(itemDtoUpdate);
         mockMvc.perform(patch("/items/{itemId}", itemId)
                 .contentType("application/json")
                 .header("x-sharer-user-id", userId)
                 .content(objectMapper.writeValueAsString(fields)))
                 .andExpect(status().isOk());
         verify(itemService).updateItem(fields, userId, itemId);
+        verify(itemService, never()).getItem(any(), any());
+        verify(userService, never()).getUser(any());
     }
 
     @SneakyThrows
@@ -289,6 +337,71 @@ class ItemControllerTest {
         verify(itemService).searchByNameOrDescription("text");
     }
 
+    @SneakyThrows
+    @Test
+    void searchFuzzy() {
+        mockMvc.perform(MockMvcRequestBuilders.get("/items/search")
+                .param("text", "drel")
+                .param("fuzzy", "1")
+                .characterEncoding(StandardCharsets.UTF_8)
+                .accept("application/json"))
+                .andExpect(status().isOk());
+        verify(itemService).searchFuzzy("drel");
+        verify(itemService, never()).searchByNameOrDescription(any());
+    }
+
+    @SneakyThrows
+    @Test
+    void searchPage() {
+        ItemDto itemDto = ItemDto.builder().id(1L).available(true).description("thing").name("thing").build();
+        Mockito.when(itemService.searchPage("thing", false, "abc", 1))
+                .thenReturn(new ItemSearchPage(List.of(itemDto), "def"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/items/search")
+                .param("text", "thing")
+                .param("size", "1")
+                .param("cursor", "abc")
+                .accept("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "def"))
+                .andExpect(jsonPath("$[0].id", is(1)));
+        verify(itemService, never()).searchByNameOrDescription(any());
+    }
+
+    @SneakyThrows
+    @Test
+    void suggest() {
+        Mockito.when(itemService.suggest("дре", 5)).thenReturn(List.of("Дрель"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/items/suggest")
+                .param("prefix", "дре")
+                .param("size", "5")
+                .characterEncoding(StandardCharsets.UTF_8)
+                .accept("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]", is("Дрель")));
+    }
+
+    @SneakyThrows
+    @Test
+    void suggestSizeNotPositive() {
+        mockMvc.perform(MockMvcRequestBuilders.get("/items/suggest")
+                .param("prefix", "дре")
+                .param("size", "0")
+                .accept("application/json"))
+                .andExpect(status().isBadRequest());
+        verify(itemService, never()).suggest(any(), anyInt());
+    }
+
+    @SneakyThrows
+    @Test
+    void suggestSizeTooLarge() {
+        mockMvc.perform(MockMvcRequestBuilders.get("/items/suggest")
+                .param("prefix", "дре")
+                .param("size", "51")
+                .accept("application/json"))
+                .andExpect(status().isBadRequest());
+        verify(itemService, never()).suggest(any(), anyInt());
+    }
+
     @SneakyThrows
     @Test
     void addComment() {
@@ -0,0 +1,57 @@
+package ru.practicum.shareit.item.mapper;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.handler.exception.ValidationException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ItemPatcherTest {
+    private final User owner = User.builder().id(1L).name("an").email("an@com").build();
+
+    private Item item() {
+        return Item.builder().id(1L).name("thing").description("thing").available(true).owner(owner).build();
+    }
+
+    @Test
+    void apply() {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("id", 1);
+        fields.put("name", "new thing");
+        fields.put("available", false);
+        fields.put("requestId", 5);
+        Item item = ItemPatcher.apply(fields, item());
+        assertEquals(item.getName(), "new thing");
+        assertEquals(item.getDescription(), "thing");
+        assertEquals(item.getAvailable(), false);
+        assertEquals(item.getRequestId(), 5L);
+    }
+
+    @Test
+    void applyUnknownField() {
+        Item item = item();
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("name", "new thing");
+        fields.put("owner", 2);
+        assertThrows(ValidationException.class, () -> ItemPatcher.apply(fields, item));
+        assertThrows(ValidationException.class, () -> ItemPatcher.apply(Map.of("color", "red"), item));
+        assertEquals(item.getName(), "thing");
+    }
+
+    @Test
+    void applyWrongValue() {
+        Item item = item();
+        assertThrows(ValidationException.class, () -> ItemPatcher.apply(Map.of("id", 2), item));
+        assertThrows(ValidationException.class, () -> ItemPatcher.apply(Map.of("available", "yes"), item));
+        assertThrows(ValidationException.class, () -> ItemPatcher.apply(Map.of("requestId", "x"), item));
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("name", null);
+        assertThrows(ValidationException.class, () -> ItemPatcher.apply(fields, item));
+        assertEquals(item.getAvailable(), true);
+    }
+}
@@ -14,7 +14,6 @@ import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import static java.time.LocalDateTime.now;
@@ -39,7 +38,7 @@ class ItemRepositoryTest {
 
         User owner = userRepository.save(User.builder().email("a@n.com").name("an").build());
         User user = userRepository.save(User.builder().email("ai@n.com").name("ain").build());
-        ItemRequest request = itemRequestRepository.save(ItemRequest.builder().created(now()).description("thing").items(new ArrayList<>())
+        ItemRequest request = itemRequestRepository.save(ItemRequest.builder().created(now()).description("thing")
                 .requestor(user).build());
         itemRepository.save(Item.builder().requestId(request.getId()).available(true).description("thing").name("thing")
                 .owner(owner).build());
@@ -52,6 +51,14 @@ class ItemRepositoryTest {
         assertEquals(items.size(), 1);
     }
 
+    @Test
+    void findByIdAndOwnerId() {
+        Item item = itemRepository.findAll().get(0);
+        Long ownerId = item.getOwner().getId();
+        assertEquals(itemRepository.findByIdAndOwner_Id(item.getId(), ownerId).get(), item);
+        assertEquals(itemRepository.findByIdAndOwner_Id(item.getId(), ownerId + 1).isEmpty(), true);
+    }
+
     @Test
     void searchByNameOrDescription() {
         List<Item> items = itemRepository.searchByNameOrDescription("thing");
@@ -59,6 +66,30 @@ class ItemRepositoryTest {
         assertEquals(items.get(0).getName(), "thing");
     }
 
+    @Test
+    void searchByNameOrDescriptionSkipsUnavailable() {
+        User owner = userRepository.findAll().get(0);
+        itemRepository.save(Item.builder().available(false).description("Сломанная ДРЕЛЬ").name("дрель")
+                .owner(owner).build());
+        itemRepository.save(Item.builder().available(true).description("Аккумуляторная дрель").name("Отвертка")
+                .owner(owner).build());
+        List<Item> items = itemRepository.searchByNameOrDescription("дрель");
+        assertEquals(items.size(), 1);
+        assertEquals(items.get(0).getName(), "Отвертка");
+    }
+
+    @Test
+    void searchByNameOrDescriptionAfter() {
+        User owner = userRepository.findAll().get(0);
+        Item second = itemRepository.save(Item.builder().available(true).description("another thing").name("saw")
+                .owner(owner).build());
+        List<Item> items = itemRepository.searchByNameOrDescriptionAfter("thing", 0L, 1);
+        assertEquals(items.size(), 1);
+        items = itemRepository.searchByNameOrDescriptionAfter("thing", items.get(0).getId(), 10);
+        assertEquals(items.size(), 1);
+        assertEquals(items.get(0).getId(), second.getId());
+    }
+
     @Test
     void findByRequestId() {
         List<Item> items = itemRepository.findByRequestId(1L);
@@ -0,0 +1,65 @@
+package ru.practicum.shareit.item.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Run with -Dbenchmark=true. Compares the former lower()/LIKE JPQL query with the search over
+ * the persisted name_lower/description_lower columns.
+ */
+@Slf4j
+@DataJpaTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ItemSearchBenchmarkTest {
+    private static final String LEGACY_QUERY = "select * from items as u where lower(u.name) like lower(concat('%', concat(?, '%')))" +
+            " or lower(u.description) like lower(concat('%', concat(?, '%'))) and u.available = true";
+    private static final int RUNS = 20;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @ParameterizedTest
+    @ValueSource(ints = {10_000, 100_000, 1_000_000})
+    void searchByNameOrDescription(int count) {
+        jdbcTemplate.update("insert into users (id, name, email) values (1, 'owner', 'owner@mail.com')");
+        Long owner = jdbcTemplate.queryForObject("select max(id) from users", Long.class);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String name = i % 1000 == 0 ? "Дрель " + i : "Item " + i;
+            rows.add(new Object[]{i + 1, name, "Description of item number " + i, i % 2 == 0, owner});
+            if (rows.size() == 10_000) {
+                jdbcTemplate.batchUpdate("insert into items (id, name, description, available, owner) values (?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into items (id, name, description, available, owner) values (?, ?, ?, ?, ?)", rows);
+
+        int found = itemRepository.searchByNameOrDescription("дрель").size();
+        assertEquals(found, count / 1000);
+        jdbcTemplate.queryForList(LEGACY_QUERY, "дрель", "дрель");
+
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            jdbcTemplate.queryForList(LEGACY_QUERY, "дрель", "дрель");
+        }
+        long legacy = (System.nanoTime() - start) / RUNS / 1000;
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            itemRepository.searchByNameOrDescription("дрель");
+        }
+        long current = (System.nanoTime() - start) / RUNS / 1000;
+        log.info("items: {}, lower() query: {} us, name_lower query: {} us", count, legacy, current);
+    }
+}
@@ -0,0 +1,103 @@
+package ru.practicum.shareit.item.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Run with -Dbenchmark=true. The same comparison as {@link ItemSearchBenchmarkTest}, but on PostgreSQL with the
+ * postgresql profile, where name_lower/description_lower have trigram GIN indexes. Starts a PostgreSQL container,
+ * or uses the database given with -Dbenchmark.postgres.url (and .username/.password, test/test by default).
+ * The database needs a UTF-8 locale, otherwise lower() leaves Cyrillic as is. The items table is truncated before
+ * every size.
+ */
+@Slf4j
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("postgresql")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ItemSearchPostgresBenchmarkTest {
+    private static final String LEGACY_QUERY = "select * from items as u where lower(u.name) like lower(concat('%', concat(?, '%')))" +
+            " or lower(u.description) like lower(concat('%', concat(?, '%'))) and u.available = true";
+    private static final String CURRENT_QUERY = "select * from items as i where i.available = true" +
+            " and (i.name_lower like concat('%', ?, '%') or i.description_lower like concat('%', ?, '%'))";
+    private static final int RUNS = 20;
+    private static PostgreSQLContainer<?> postgres;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        String url = System.getProperty("benchmark.postgres.url");
+        if (url != null) {
+            registry.add("spring.datasource.url", () -> url);
+            registry.add("spring.datasource.username", () -> System.getProperty("benchmark.postgres.username", "test"));
+            registry.add("spring.datasource.password", () -> System.getProperty("benchmark.postgres.password", "test"));
+            return;
+        }
+        if (postgres == null) {
+            postgres = new PostgreSQLContainer<>("postgres:14-alpine");
+            postgres.start();
+        }
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10_000, 100_000, 1_000_000})
+    void searchByNameOrDescription(int count) {
+        jdbcTemplate.execute("truncate items, users cascade");
+        jdbcTemplate.update("insert into users (id, name, email) values (1, 'owner', 'owner@mail.com')");
+        jdbcTemplate.update("insert into items (id, name, description, available, owner) select i, " +
+                "case when i % 1000 = 0 then 'Дрель ' || i else 'Item ' || i end, " +
+                "'Description of item number ' || i, i % 2 = 0, 1 from generate_series(1, ?) as i", count);
+        jdbcTemplate.execute("analyze items");
+
+        assertEquals(count / 1000, itemRepository.searchByNameOrDescription("дрель").size());
+        String plan = explain(CURRENT_QUERY);
+        if (count >= 100_000) {
+            // on a few thousand rows a sequential scan is cheaper and the planner is right to choose it
+            assertTrue(plan.contains("ix_items_name_lower_trgm"), plan);
+        }
+        jdbcTemplate.queryForList(LEGACY_QUERY, "дрель", "дрель");
+
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            jdbcTemplate.queryForList(LEGACY_QUERY, "дрель", "дрель");
+        }
+        long legacy = (System.nanoTime() - start) / RUNS / 1000;
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            itemRepository.searchByNameOrDescription("дрель");
+        }
+        long current = (System.nanoTime() - start) / RUNS / 1000;
+        log.info("items: {}, lower() query: {} us, name_lower query: {} us\nlower() plan:\n{}\nname_lower plan:\n{}",
+                count, legacy, current, explain(LEGACY_QUERY), plan);
+    }
+
+    private String explain(String query) {
+        return jdbcTemplate.queryForList("explain analyze " + query, String.class, "дрель", "дрель").stream()
+                .collect(Collectors.joining("\n"));
+    }
+}
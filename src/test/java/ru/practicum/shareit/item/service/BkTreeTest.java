@@ -0,0 +1,30 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BkTreeTest {
+
+    @Test
+    void distance() {
+        assertEquals(BkTree.distance("drel", "drill"), 2);
+        assertEquals(BkTree.distance("", "abc"), 3);
+        assertEquals(BkTree.distance("kitten", "sitting"), 3);
+    }
+
+    @Test
+    void search() {
+        BkTree tree = new BkTree();
+        assertTrue(tree.search("drill", 2).isEmpty());
+        for (String term : new String[]{"drill", "drel", "dril", "hammer", "saw", "drill"}) {
+            tree.add(term);
+        }
+        assertEquals(tree.search("drill", 1), Map.of("drill", 0, "dril", 1));
+        assertEquals(tree.search("drill", 2), Map.of("drill", 0, "dril", 1, "drel", 2));
+        assertTrue(tree.search("screwdriver", 2).isEmpty());
+    }
+}
@@ -0,0 +1,83 @@
+package ru.practicum.shareit.item.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ItemSearchCacheTest {
+    @Mock
+    ItemSearchIndex searchIndex;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ItemSearchCache searchCache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        searchCache = new ItemSearchCache(searchIndex, meterRegistry, 100);
+    }
+
+    private List<ItemDto> load(String query) {
+        loads.incrementAndGet();
+        return List.of(ItemDto.builder().id(1L).name(query).build());
+    }
+
+    @Test
+    void get() {
+        when(searchIndex.version()).thenReturn(1L);
+        assertEquals(searchCache.get(" Дрель ", this::load).get(0).getName(), "дрель");
+        assertEquals(searchCache.get("ДРЕЛЬ", this::load).get(0).getName(), "дрель");
+        assertEquals(loads.get(), 1);
+        assertEquals(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count(), 1.0);
+        assertEquals(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count(), 1.0);
+
+        when(searchIndex.version()).thenReturn(2L);
+        searchCache.get("дрель", this::load);
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    void getComputesConcurrentMissesOnce() throws Exception {
+        when(searchIndex.version()).thenReturn(1L);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<ItemDto>>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return searchCache.get("дрель", query -> {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return load(query);
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<List<ItemDto>> result : results) {
+            assertEquals(result.get(5, TimeUnit.SECONDS).size(), 1);
+        }
+        executor.shutdown();
+        assertEquals(loads.get(), 1);
+    }
+}
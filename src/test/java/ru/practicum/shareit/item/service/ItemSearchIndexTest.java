@@ -0,0 +1,214 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.handler.exception.ValidationException;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemMatch;
+import ru.practicum.shareit.item.dto.ItemSearchPage;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ItemSearchIndexTest {
+    @Mock
+    ItemRepository repository;
+    @InjectMocks
+    ItemSearchIndex searchIndex;
+
+    private final User owner = User.builder().id(1L).name("an").email("an@com").build();
+
+    private Item item(Long id, String name, String description, Boolean available) {
+        return Item.builder().id(id).name(name).description(description).available(available).owner(owner).build();
+    }
+
+    @Test
+    void rebuild() {
+        when(repository.findAll()).thenReturn(List.of(
+                item(1L, "Дрель", "Простая дрель", true),
+                item(2L, "Отвертка", "Аккумуляторная отвертка", true),
+                item(3L, "Аккумуляторная дрель", "Дрель + аккумулятор", true),
+                item(4L, "Дрель", "Сломанная дрель", false)));
+        searchIndex.rebuild();
+
+        List<ItemDto> found = searchIndex.search("ДРЕЛЬ");
+        assertEquals(found.size(), 2);
+        assertEquals(found.get(0).getId(), 1L);
+        assertEquals(found.get(1).getId(), 3L);
+        assertEquals(searchIndex.search("аккУМУляторная").get(0).getId(), 3L);
+        assertTrue(searchIndex.search("молоток").isEmpty());
+    }
+
+    @Test
+    void searchMatchesSubstringOfNameOrDescription() {
+        searchIndex.index(item(1L, "Дрель", "Простая дрель", true));
+        searchIndex.index(item(2L, "Аккумуляторная дрель", "Дрель + аккумулятор", true));
+        searchIndex.index(item(3L, "Отвертка", "Крестовая", true));
+        searchIndex.index(item(4L, "Дрель", "Сломанная", false));
+
+        assertEquals(ids(searchIndex.search("рель")), List.of(1L, 2L));
+        assertEquals(ids(searchIndex.search("ая дрель")), List.of(2L, 1L));
+        assertEquals(ids(searchIndex.search("ь + а")), List.of(2L));
+        assertEquals(ids(searchIndex.search("ст")), List.of(1L, 3L));
+        assertTrue(searchIndex.search("акку дре").isEmpty());
+        assertTrue(searchIndex.search("дрельь").isEmpty());
+    }
+
+    private static List<Long> ids(List<ItemDto> items) {
+        return items.stream().map(ItemDto::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void index() {
+        searchIndex.index(item(1L, "Drill", "Cordless drill", true));
+        assertEquals(searchIndex.search("dri").size(), 1);
+
+        searchIndex.index(item(1L, "Drill", "Cordless drill", false));
+        assertTrue(searchIndex.search("dri").isEmpty());
+
+        searchIndex.index(item(1L, "Hammer", "Heavy hammer", true));
+        assertTrue(searchIndex.search("drill").isEmpty());
+        assertEquals(searchIndex.search("hammer").get(0).getName(), "Hammer");
+    }
+
+    @Test
+    void searchFuzzy() {
+        searchIndex.index(item(1L, "Дрель", "Простая дрель", true));
+        searchIndex.index(item(2L, "Drill", "Cordless drill", true));
+        searchIndex.index(item(3L, "Отвертка", "Крестовая", true));
+
+        List<ItemDto> found = searchIndex.searchFuzzy("drel");
+        assertEquals(found.size(), 2);
+        assertEquals(found.get(0).getId(), 1L);
+        assertEquals(found.get(1).getId(), 2L);
+        assertEquals(searchIndex.searchFuzzy("отвёртка").get(0).getId(), 3L);
+        assertTrue(searchIndex.searchFuzzy("молоток").isEmpty());
+
+        searchIndex.index(item(1L, "Дрель", "Простая дрель", false));
+        assertEquals(searchIndex.searchFuzzy("дрел").size(), 1);
+    }
+
+    @Test
+    void searchFuzzyMatchesNamesOnly() {
+        searchIndex.index(item(1L, "Дрель", "Простая", true));
+        searchIndex.index(item(2L, "Отвертка", "Не подходит для дрели", true));
+
+        assertEquals(ids(searchIndex.searchFuzzy("drel")), List.of(1L));
+    }
+
+    @Test
+    void searchFuzzyForgetsRenamedTerms() {
+        for (int i = 0; i < 100; i++) {
+            searchIndex.index(item(1L, "Дрель" + i, "Простая", true));
+        }
+        searchIndex.index(item(2L, "Молоток", "Тяжелый", true));
+
+        assertTrue(searchIndex.fuzzyTermCount() <= 4);
+        assertEquals(ids(searchIndex.searchFuzzy("дрель99")), List.of(1L));
+        assertEquals(ids(searchIndex.searchFuzzy("молоток")), List.of(2L));
+
+        searchIndex.index(item(1L, "Дрель99", "Простая", false));
+        assertTrue(searchIndex.searchFuzzy("дрель99").isEmpty());
+        assertEquals(ids(searchIndex.searchFuzzy("молоток")), List.of(2L));
+    }
+
+    @Test
+    void transliterate() {
+        assertEquals(ItemSearchIndex.transliterate("дрель"), "drel");
+        assertEquals(ItemSearchIndex.transliterate("щётка1"), "shchёtka1");
+    }
+
+    @Test
+    void suggest() {
+        searchIndex.index(item(1L, "Дрель", "Простая дрель", true));
+        searchIndex.index(item(2L, "Аккумуляторная дрель", "Дрель + аккумулятор", true));
+        searchIndex.index(item(3L, "Дрезина", "Ручная", true));
+        searchIndex.index(item(4L, "Дрель", "Вторая дрель", true));
+
+        assertEquals(searchIndex.suggest("ДРЕ", 10), List.of("Дрель", "Дрезина", "Аккумуляторная дрель"));
+        assertEquals(searchIndex.suggest("дре", 1), List.of("Дрель"));
+        assertEquals(searchIndex.suggest("аккумуляторная д", 10), List.of("Аккумуляторная дрель"));
+        assertEquals(searchIndex.suggest("Д", 10), List.of("Дрель", "Дрезина", "Аккумуляторная дрель"));
+        assertEquals(searchIndex.suggest("др", 2), List.of("Дрель", "Дрезина"));
+        assertEquals(searchIndex.suggest("а", 10), List.of("Аккумуляторная дрель"));
+
+        searchIndex.index(item(3L, "Дрезина", "Ручная", false));
+        searchIndex.index(item(1L, "Молоток", "Простой", true));
+        assertEquals(searchIndex.suggest("дре", 10), List.of("Дрель", "Аккумуляторная дрель"));
+        assertEquals(searchIndex.suggest("д", 10), List.of("Дрель", "Аккумуляторная дрель"));
+        searchIndex.index(item(4L, "Дрель", "Вторая дрель", false));
+        assertEquals(searchIndex.suggest("дре", 10), List.of("Аккумуляторная дрель"));
+        assertEquals(searchIndex.suggest("д", 10), List.of("Аккумуляторная дрель"));
+        assertEquals(searchIndex.suggest("м", 10), List.of("Молоток"));
+        assertTrue(searchIndex.suggest(" ", 10).isEmpty());
+    }
+
+    @Test
+    void searchPage() {
+        searchIndex.index(item(1L, "Дрель", "Дрель", true));
+        searchIndex.index(item(2L, "Ударная дрель", "Мощная", true));
+        searchIndex.index(item(3L, "Перфоратор", "Сверлит как дрель", true));
+        searchIndex.index(item(4L, "Дрель", "Простая", true));
+
+        ItemSearchPage first = searchIndex.searchPage("дрель", false, null, 2);
+        assertEquals(first.getItems().size(), 2);
+        assertEquals(first.getItems().get(0).getId(), 1L);
+        assertEquals(first.getItems().get(1).getId(), 2L);
+
+        ItemSearchPage second = searchIndex.searchPage("дрель", false, SearchCursor.decode(first.getNext()), 2);
+        assertEquals(second.getItems().size(), 2);
+        assertEquals(second.getItems().get(0).getId(), 4L);
+        assertEquals(second.getItems().get(1).getId(), 3L);
+        assertNull(second.getNext());
+    }
+
+    @Test
+    void searchPageRejectsCursorOfAnotherQuery() {
+        searchIndex.index(item(1L, "Дрель", "Дрель", true));
+        searchIndex.index(item(2L, "Ударная дрель", "Мощная", true));
+
+        SearchCursor cursor = SearchCursor.decode(searchIndex.searchPage("дрель", false, null, 1).getNext());
+        assertEquals(searchIndex.searchPage(" ДРЕЛЬ", false, cursor, 1).getItems().get(0).getId(), 2L);
+        assertThrows(ValidationException.class, () -> searchIndex.searchPage("ударная", false, cursor, 1));
+        assertThrows(ValidationException.class, () -> searchIndex.searchPage("дрель", true, cursor, 1));
+    }
+
+    @Test
+    void tokenize() {
+        assertEquals(ItemSearchIndex.tokenize("Ёлка, ELKA-2000!"), List.of("елка", "elka", "2000"));
+    }
+
+    @Test
+    void matchNeedsOneWordAndIgnoresEndings() {
+        User other = User.builder().id(2L).name("bn").email("bn@com").build();
+        when(repository.findAll()).thenReturn(List.of(
+                item(1L, "Дрель", "Простая дрель", true),
+                item(2L, "Щетка для обуви", "Мягкая щетка", true),
+                item(3L, "Отвертка", "Для дрели не подходит", true),
+                item(4L, "Дрель", "Сломанная дрель", false),
+                Item.builder().id(5L).name("Дрель ударная").description("Мощная дрель").available(true).owner(other).build()));
+        searchIndex.rebuild();
+
+        List<ItemMatch> matches = searchIndex.match("Нужна дрелью просверлить стену и щеткой почистить", null, 10);
+        assertEquals(matches.stream().map(x -> x.getItem().getId()).collect(Collectors.toList()), List.of(1L, 2L, 5L, 3L));
+        assertTrue(matches.get(0).getScore() > matches.get(3).getScore());
+
+        assertEquals(searchIndex.match("дрелью", 2L, 10).stream().map(x -> x.getItem().getId())
+                .collect(Collectors.toList()), List.of(1L, 3L));
+        assertEquals(searchIndex.match("дрелью", null, 1).size(), 1);
+        assertTrue(searchIndex.match("для и на", null, 10).isEmpty());
+    }
+}
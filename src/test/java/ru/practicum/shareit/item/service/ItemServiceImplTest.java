@@ -5,15 +5,21 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
 import ru.practicum.shareit.booking.Status;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingTimelineIndex;
 import ru.practicum.shareit.comment.dto.CommentDto;
 import ru.practicum.shareit.comment.mapper.CommentMapper;
 import ru.practicum.shareit.comment.model.Comment;
 import ru.practicum.shareit.comment.repository.CommentRepository;
 import ru.practicum.shareit.handler.exception.ObjectNotFoundException;
+import ru.practicum.shareit.handler.exception.ValidationException;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemImportResult;
+import ru.practicum.shareit.item.dto.ItemSearchPage;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
@@ -21,14 +27,17 @@ import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,6 +50,16 @@ class ItemServiceImplTest {
     BookingRepository bookingRepository;
     @Mock
     CommentRepository commentRepository;
+    @Mock
+    BookingTimelineIndex bookingTimeline;
+    @Mock
+    ItemSearchIndex searchIndex;
+    @Mock
+    ItemSearchCache searchCache;
+    @Mock
+    ItemViewCache viewCache;
+    @Mock
+    private ItemBatchWriter batchWriter;
     @InjectMocks
     ItemServiceImpl itemService;
 
@@ -60,6 +79,26 @@ class ItemServiceImplTest {
     }
 
 
+    @Test
+    void getItemsWithLastNextBooking() {
+        Long userId = 0L;
+        Long itemId = 1L;
+        User user = User.builder().name("an").email("an@com").id(userId).build();
+        User booker = User.builder().name("bo").email("bo@com").id(2L).build();
+        Item item = Item.builder().id(itemId).name("thing").description("thing").owner(user).available(true).build();
+        Booking last = Booking.builder().id(1L).item(item).booker(booker).status(Status.APPROVED)
+                .start(LocalDateTime.now().minusDays(2)).end(LocalDateTime.now().minusDays(1)).build();
+        Booking next = Booking.builder().id(2L).item(item).booker(booker).status(Status.WAITING)
+                .start(LocalDateTime.now().plusDays(1)).end(LocalDateTime.now().plusDays(2)).build();
+        when(repository.findByOwnerOrderById(userId)).thenReturn(List.of(item));
+        when(bookingRepository.findLastByItemIds(eq(List.of(itemId)), any(LocalDateTime.class))).thenReturn(List.of(last));
+        when(bookingRepository.findNextByItemIds(eq(List.of(itemId)), any(LocalDateTime.class))).thenReturn(List.of(next));
+        List<ItemDto> actualItemsDto = itemService.getItems(userId);
+        assertEquals(actualItemsDto.get(0).getLastBooking().getId(), last.getId());
+        assertEquals(actualItemsDto.get(0).getNextBooking().getId(), next.getId());
+        verify(bookingRepository, never()).findByItem_Id(any());
+    }
+
     @Test
     void addNewItemWithoutUser() {
         Long userId = 0L;
@@ -103,6 +142,7 @@ class ItemServiceImplTest {
 
         itemDto.setComments(commentsDto);
 
+        when(viewCache.get(eq(itemId), any())).thenAnswer(x -> x.getArgument(1, Function.class).apply(itemId));
         when(repository.findById(itemId)).thenThrow(new ObjectNotFoundException("Item not found"));
         assertThrows(ObjectNotFoundException.class, () -> itemService.getItem(userId, userId));
 
@@ -128,6 +168,7 @@ class ItemServiceImplTest {
         itemDto.setComments(commentsDto);
         when(commentRepository.findByItem_idOrderById(itemId)).thenReturn(comments);
         when(repository.findById(itemId)).thenReturn(Optional.of(item));
+        when(viewCache.get(eq(itemId), any())).thenAnswer(x -> x.getArgument(1, Function.class).apply(itemId));
         ItemDto actualItemDto = itemService.getItem(userId, userId);
         assertEquals(itemDto, actualItemDto);
         verify(repository).findById(itemId);
@@ -149,11 +190,87 @@ class ItemServiceImplTest {
         fields.put("available", false);
         ItemDto itemDtoUpdate = ItemDto.builder().available(true).owner(userId).id(1L)
                 .description("new thing").name("thing").build();
-        List<Item> items = new ArrayList<>();
-        when(repository.findByOwnerOrderById(userId).stream().filter(x -> x.getId().equals(itemId))
-                .collect(Collectors.toList()).size() == 0).thenThrow(new ObjectNotFoundException("Item not found"));
+        when(repository.findByIdAndOwner_Id(itemId, userId)).thenReturn(Optional.empty());
         assertThrows(ObjectNotFoundException.class, () -> itemService.updateItem(fields, userId, itemId));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void addItems() {
+        Long userId = 0L;
+        User user = User.builder().name("an").email("an@com").id(userId).build();
+        ItemDto valid = ItemDto.builder().name("thing").description("thing").available(true).build();
+        ItemDto blank = new ItemDto();
+        blank.setDescription("thing");
+        ItemDto withoutAvailable = ItemDto.builder().name("saw").description("saw").build();
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(batchWriter.saveAll(any())).thenAnswer(x -> {
+            List<Item> items = x.getArgument(0);
+            for (int i = 0; i < items.size(); i++) {
+                items.get(i).setId(10L + i);
+            }
+            return items;
+        });
+        List<ItemImportResult> results = itemService.addItems(userId,
+                Arrays.asList(valid, blank, null, withoutAvailable, valid));
+        assertEquals(results.size(), 5);
+        assertEquals(results.get(0), new ItemImportResult(0, 10L, null));
+        assertEquals(results.get(1).getError(), "Поле name пусто.");
+        assertEquals(results.get(2).getError(), "Некорректный предмет");
+        assertEquals(results.get(3).getError(), "Поле available null.");
+        assertEquals(results.get(4), new ItemImportResult(4, 11L, null));
+        verify(batchWriter, times(1)).saveAll(any());
+        verify(userRepository, times(1)).findById(userId);
+    }
+
+    @Test
+    void addItemsRetriesFailedChunkByRow() {
+        Long userId = 0L;
+        User user = User.builder().name("an").email("an@com").id(userId).build();
+        ItemDto valid = ItemDto.builder().name("thing").description("thing").available(true).build();
+        ItemDto wrongRequest = ItemDto.builder().name("saw").description("saw").available(true).requestId(99L).build();
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(batchWriter.saveAll(any())).thenAnswer(x -> {
+            List<Item> items = x.getArgument(0);
+            if (items.stream().anyMatch(item -> item.getRequestId() != null)) {
+                throw new DataIntegrityViolationException("could not execute statement",
+                        new SQLException("Referential integrity constraint violation: FK_ITEMS_TO_REQUEST"));
+            }
+            items.get(0).setId(1L);
+            return items;
+        });
+        List<ItemImportResult> results = itemService.addItems(userId, List.of(valid, wrongRequest));
+        assertEquals(results.get(0), new ItemImportResult(0, 1L, null));
+        assertEquals(results.get(1), new ItemImportResult(1, null,
+                "Предмет не сохранен: Referential integrity constraint violation: FK_ITEMS_TO_REQUEST"));
+        verify(batchWriter, times(3)).saveAll(any());
+    }
+
+    @Test
+    void addItemsNotFoundUser() {
+        when(userRepository.findById(0L)).thenReturn(Optional.empty());
+        assertThrows(ObjectNotFoundException.class, () -> itemService.addItems(0L, List.of()));
+        verify(batchWriter, never()).saveAll(any());
+    }
 
+    @Test
+    void updateItem() {
+        Long userId = 0L;
+        Long itemId = 1L;
+        User user = User.builder().name("an").email("an@com").id(userId).build();
+        Item item = Item.builder().id(itemId).name("thing").description("thing").available(true).owner(user).build();
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("id", itemId);
+        fields.put("available", false);
+        when(repository.findByIdAndOwner_Id(itemId, userId)).thenReturn(Optional.of(item));
+        ItemDto itemDto = itemService.updateItem(fields, userId, itemId);
+        assertEquals(itemDto.getAvailable(), false);
+        assertEquals(itemDto.getOwner(), userId);
+        verify(repository).save(item);
+        verify(searchIndex).index(item);
+        verify(viewCache).invalidate(itemId);
+        verify(userRepository, never()).findById(any());
+        verify(repository, never()).findByOwnerOrderById(any());
     }
 
     @Test
@@ -165,10 +282,50 @@ class ItemServiceImplTest {
         Item item = ItemMapper.toDtoItem(itemDto, user);
         List<Item> items = new ArrayList<>();
         items.add(item);
-        when(repository.searchByNameOrDescription(text)).thenReturn(items);
+        when(searchCache.get(eq(text), any())).thenAnswer(x -> x.getArgument(1, Function.class).apply(text));
+        when(searchIndex.search(text)).thenReturn(ItemMapper.toItemDto(items));
         List<ItemDto> actualItemsDto = itemService.searchByNameOrDescription(text);
         assertEquals(ItemMapper.toDtoItem(actualItemsDto.get(0), user), items.get(0));
-        verify(repository).searchByNameOrDescription(text);
+        verify(searchIndex).search(text);
+        verify(repository, never()).searchByNameOrDescription(any());
+    }
+
+    @Test
+    void searchByNameOrDescriptionInDatabase() {
+        Long userId = 0L;
+        User user = User.builder().name("an").email("an@com").id(userId).build();
+        Item item = Item.builder().id(1L).name("Дрель").description("дрель").owner(user).available(true).build();
+        ReflectionTestUtils.setField(itemService, "databaseSearch", true);
+        when(searchCache.get(eq("ДРЕЛЬ"), any())).thenAnswer(x -> x.getArgument(1, Function.class).apply("дрель"));
+        when(repository.searchByNameOrDescription("дрель")).thenReturn(List.of(item));
+        List<ItemDto> actualItemsDto = itemService.searchByNameOrDescription("ДРЕЛЬ");
+        assertEquals(actualItemsDto.get(0).getId(), item.getId());
+        verify(searchIndex, never()).search(any());
+    }
+
+    @Test
+    void searchPageInDatabase() {
+        User user = User.builder().name("an").email("an@com").id(0L).build();
+        Item first = Item.builder().id(1L).name("Дрель").description("дрель").owner(user).available(true).build();
+        Item second = Item.builder().id(2L).name("Дрель").description("дрель").owner(user).available(true).build();
+        ReflectionTestUtils.setField(itemService, "databaseSearch", true);
+        when(repository.searchByNameOrDescriptionAfter("дрель", 0L, 2)).thenReturn(new ArrayList<>(List.of(first, second)));
+        ItemSearchPage page = itemService.searchPage(" Дрель ", false, null, 1);
+        assertEquals(page.getItems().size(), 1);
+        assertEquals(SearchCursor.decode(page.getNext()).getId(), 1L);
+    }
+
+    @Test
+    void searchPageWrongCursor() {
+        assertThrows(ValidationException.class, () -> itemService.searchPage("Дрель", false, "???", 1));
+    }
+
+    @Test
+    void searchPageCursorOfAnotherQuery() {
+        String cursor = new SearchCursor(SearchCursor.queryHash("дрель", false), 0, 1L).encode();
+        ReflectionTestUtils.setField(itemService, "databaseSearch", true);
+        assertThrows(ValidationException.class, () -> itemService.searchPage("Пила", false, cursor, 1));
+        verify(repository, never()).searchByNameOrDescriptionAfter(any(), anyLong(), anyInt());
     }
 
     @Test
@@ -202,6 +359,7 @@ class ItemServiceImplTest {
         assertEquals(actualAddComment.getId(), commentDto.getId());
         assertEquals(actualAddComment.getText(), commentDto.getText());
         assertEquals(actualAddComment.getAuthorName(), commentDto.getAuthorName());
+        verify(viewCache).invalidate(itemId);
         assertEquals(actualAddComment.getCreated().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm")), commentDto.getCreated().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm")));
     }
 }
\ No newline at end of file
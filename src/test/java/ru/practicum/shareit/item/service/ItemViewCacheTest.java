@@ -0,0 +1,51 @@
+package ru.practicum.shareit.item.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.dto.BookingDtoForItem;
+import ru.practicum.shareit.handler.exception.ObjectNotFoundException;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ItemViewCacheTest {
+    private final ItemViewCache viewCache = new ItemViewCache(new SimpleMeterRegistry(), 100);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ItemDto load(Long itemId) {
+        loads.incrementAndGet();
+        return ItemDto.builder().id(itemId).name("thing " + loads.get()).comments(new ArrayList<>()).build();
+    }
+
+    @Test
+    void get() {
+        ItemDto first = viewCache.get(1L, this::load);
+        first.setLastBooking(new BookingDtoForItem());
+        ItemDto second = viewCache.get(1L, this::load);
+        assertEquals(loads.get(), 1);
+        assertEquals(second.getName(), "thing 1");
+        assertNull(second.getLastBooking());
+    }
+
+    @Test
+    void invalidate() {
+        viewCache.get(1L, this::load);
+        viewCache.get(2L, this::load);
+        viewCache.invalidate(1L);
+        assertEquals(viewCache.get(1L, this::load).getName(), "thing 3");
+        assertEquals(viewCache.get(2L, this::load).getName(), "thing 2");
+    }
+
+    @Test
+    void getNotFound() {
+        assertThrows(ObjectNotFoundException.class, () -> viewCache.get(1L, x -> {
+            throw new ObjectNotFoundException("Item not found");
+        }));
+        assertEquals(viewCache.get(1L, this::load).getName(), "thing 1");
+    }
+}
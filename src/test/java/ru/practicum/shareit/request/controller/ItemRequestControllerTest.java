@@ -9,19 +9,32 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.dto.ItemRequestPage;
+import ru.practicum.shareit.request.dto.RequestItemDto;
 import ru.practicum.shareit.request.service.ItemRequestService;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -78,6 +91,27 @@ class ItemRequestControllerTest {
         verify(itemRequestService).getRequest(userId, requestId);
     }
 
+    @SneakyThrows
+    @Test
+    void getReturnsItemSummaries() {
+        Long requestId = 1L;
+        Long userId = 0L;
+        ItemRequestDto itemRequestDto = ItemRequestDto.builder().id(requestId).created(LocalDateTime.now())
+                .description("drill").requestor(2L)
+                .items(List.of(new RequestItemDto(3L, "drill", "cordless drill", true, requestId))).build();
+        Mockito.when(itemRequestService.getRequest(userId, requestId)).thenReturn(itemRequestDto);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/requests/{requestId}", requestId)
+                .header("x-sharer-user-id", userId)
+                .accept("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id", is(3)))
+                .andExpect(jsonPath("$.items[0].name", is("drill")))
+                .andExpect(jsonPath("$.items[0].available", is(true)))
+                .andExpect(jsonPath("$.items[0].requestId", is(1)))
+                .andExpect(jsonPath("$.items[0].owner").doesNotExist());
+    }
+
     @SneakyThrows
     @Test
     void getOwn() {
@@ -127,4 +161,136 @@ class ItemRequestControllerTest {
                 .andExpect(status().isOk());
         verify(itemRequestService).getAll(userId);
     }
-}
\ No newline at end of file
+
+    @SneakyThrows
+    @Test
+    void getAllWithoutAcceptReturnsJsonArray() {
+        Long userId = 0L;
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/requests/all")
+                .header("x-sharer-user-id", userId))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+        verify(itemRequestService).getAll(userId);
+        verify(itemRequestService, never()).streamAll(any(), any());
+    }
+
+    @SneakyThrows
+    @Test
+    void getAllNdjsonStreamsOneRequestPerLine() {
+        Long userId = 0L;
+        ItemRequestDto first = ItemRequestDto.builder().id(1L).description("drill").requestor(2L).items(List.of()).build();
+        ItemRequestDto second = ItemRequestDto.builder().id(2L).description("saw").requestor(3L).items(List.of()).build();
+        doAnswer(invocation -> {
+            Consumer<ItemRequestDto> consumer = invocation.getArgument(1);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(itemRequestService).streamAll(eq(userId), any());
+
+        String result = mockMvc.perform(MockMvcRequestBuilders.get("/requests/all")
+                .header("x-sharer-user-id", userId)
+                .accept("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertEquals(result, objectMapper.writeValueAsString(first) + "\n" + objectMapper.writeValueAsString(second) + "\n");
+        verify(itemRequestService, never()).getAll(any());
+    }
+
+    @SneakyThrows
+    @Test
+    void getAllNdjsonRejectsPaging() {
+        mockMvc.perform(MockMvcRequestBuilders.get("/requests/all")
+                .param("from", "0")
+                .param("size", "20")
+                .header("x-sharer-user-id", 0L)
+                .accept("application/x-ndjson"))
+                .andExpect(status().isBadRequest());
+        verify(itemRequestService, never()).streamAll(any(), any());
+    }
+
+    @SneakyThrows
+    @Test
+    void getAllWithBeforeReturnsFeedPage() {
+        Long userId = 0L;
+        ItemRequestDto request = ItemRequestDto.builder().id(3L).description("drill").requestor(2L).items(List.of()).build();
+        Mockito.when(itemRequestService.getAllPage(userId, "cursor", 20))
+                .thenReturn(new ItemRequestPage(List.of(request), "next"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/requests/all")
+                .param("before", "cursor")
+                .header("x-sharer-user-id", userId)
+                .accept("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(3)))
+                .andExpect(header().string("X-Next-Cursor", "next"));
+        verify(itemRequestService, never()).getAllPaged(any(), any(), any());
+    }
+
+    @SneakyThrows
+    @Test
+    void getAllWithSizeOnlyStartsFeed() {
+        Long userId = 0L;
+        Mockito.when(itemRequestService.getAllPage(userId, null, 5)).thenReturn(new ItemRequestPage(List.of(), null));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/requests/all")
+                .param("size", "5")
+                .header("x-sharer-user-id", userId)
+                .accept("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+        verify(itemRequestService).getAllPage(userId, null, 5);
+    }
+
+    @SneakyThrows
+    @Test
+    void getAllFeedRejectsZeroSize() {
+        mockMvc.perform(MockMvcRequestBuilders.get("/requests/all")
+                .param("size", "0")
+                .header("x-sharer-user-id", 0L)
+                .accept("application/json"))
+                .andExpect(status().isBadRequest());
+        verify(itemRequestService, never()).getAllPage(any(), any(), anyInt());
+    }
+
+    @SneakyThrows
+    @Test
+    void getAllFeedRejectsSizeAboveLimit() {
+        mockMvc.perform(MockMvcRequestBuilders.get("/requests/all")
+                .param("size", String.valueOf(Integer.MAX_VALUE))
+                .header("x-sharer-user-id", 0L)
+                .accept("application/json"))
+                .andExpect(status().isBadRequest());
+        verify(itemRequestService, never()).getAllPage(any(), any(), anyInt());
+    }
+
+    @SneakyThrows
+    @Test
+    void getAllRejectsBeforeWithFrom() {
+        mockMvc.perform(MockMvcRequestBuilders.get("/requests/all")
+                .param("before", "cursor")
+                .param("from", "0")
+                .param("size", "5")
+                .header("x-sharer-user-id", 0L)
+                .accept("application/json"))
+                .andExpect(status().isBadRequest());
+        verify(itemRequestService, never()).getAllPage(any(), any(), anyInt());
+        verify(itemRequestService, never()).getAllPaged(any(), any(), any());
+    }
+
+    @SneakyThrows
+    @Test
+    void getAllPagedRejectsSizeAboveInt() {
+        mockMvc.perform(MockMvcRequestBuilders.get("/requests/all")
+                .param("from", "0")
+                .param("size", "4294967296")
+                .header("x-sharer-user-id", 0L)
+                .accept("application/json"))
+                .andExpect(status().isBadRequest());
+        verify(itemRequestService, never()).getAllPaged(any(), any(), any());
+    }
+}
@@ -0,0 +1,114 @@
+package ru.practicum.shareit.request.repository;
+
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.dto.RequestItemDto;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.model.RequestSuggestion;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class ItemRequestRepositoryTest {
+    @Autowired
+    private ItemRequestRepository itemRequestRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private RequestSuggestionRepository suggestionRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    private User requestor;
+    private User other;
+
+    @BeforeEach
+    void addRequests() {
+        requestor = userRepository.save(User.builder().email("a@n.com").name("an").build());
+        other = userRepository.save(User.builder().email("b@n.com").name("bn").build());
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        for (int i = 0; i < 9; i++) {
+            itemRequestRepository.save(ItemRequest.builder().description("request" + i)
+                    .created(now.minusMinutes(i / 3)).requestor(i == 4 ? other : requestor).build());
+        }
+    }
+
+    @Test
+    void findAllBeforeWalksFeedAcrossEqualCreationTimes() {
+        List<Long> expected = itemRequestRepository.findAllIt(other.getId()).stream()
+                .map(ItemRequest::getId).collect(Collectors.toList());
+        List<Long> walked = new ArrayList<>();
+        List<ItemRequest> page = itemRequestRepository.findAllPaged(other.getId(), PageRequest.of(0, 2));
+        while (!page.isEmpty()) {
+            page.forEach(x -> walked.add(x.getId()));
+            ItemRequest last = page.get(page.size() - 1);
+            page = itemRequestRepository.findAllBefore(other.getId(), last.getCreated(), last.getId(), PageRequest.of(0, 2));
+        }
+
+        assertEquals(expected.size(), 8);
+        assertEquals(walked, expected);
+    }
+
+    @Test
+    void findItemsByRequestIdSkipsUnavailableAndAnsweringItems() {
+        ItemRequest request = itemRequestRepository.findAllIt(other.getId()).get(0);
+        Item drill = itemRepository.save(Item.builder().name("drill").description("cordless drill").available(true)
+                .owner(other).build());
+        Item oldDrill = itemRepository.save(Item.builder().name("old drill").description("slow drill").available(true)
+                .owner(other).build());
+        Item broken = itemRepository.save(Item.builder().name("drill").description("broken").available(false)
+                .owner(other).build());
+        Item answer = itemRepository.save(Item.builder().name("drill").description("added for the request")
+                .available(true).owner(other).requestId(request.getId()).build());
+        suggestionRepository.saveAll(List.of(
+                new RequestSuggestion(request.getId(), oldDrill.getId(), 2),
+                new RequestSuggestion(request.getId(), drill.getId(), 8),
+                new RequestSuggestion(request.getId(), broken.getId(), 8),
+                new RequestSuggestion(request.getId(), answer.getId(), 8)));
+
+        List<RequestItemDto> suggestions = suggestionRepository.findItemsByRequestId(request.getId());
+
+        assertEquals(suggestions, List.of(new RequestItemDto(drill.getId(), "drill", "cordless drill", true, null),
+                new RequestItemDto(oldDrill.getId(), "old drill", "slow drill", true, null)));
+    }
+
+    @Test
+    void saveAllInsertsSuggestionsInOneBatch() {
+        ItemRequest request = itemRequestRepository.findAllIt(other.getId()).get(0);
+        List<RequestSuggestion> suggestions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Item item = itemRepository.save(Item.builder().name("drill" + i).description("drill").available(true)
+                    .owner(other).build());
+            suggestions.add(new RequestSuggestion(request.getId(), item.getId(), i));
+        }
+        entityManager.flush();
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.clear();
+
+        suggestionRepository.saveAll(suggestions);
+        entityManager.flush();
+
+        assertEquals(statistics.getPrepareStatementCount(), 1L);
+        assertEquals(statistics.getEntityInsertCount(), 5L);
+    }
+}
@@ -7,14 +7,18 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 import ru.practicum.shareit.handler.exception.ValidationException;
-import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.dto.ItemRequestPage;
+import ru.practicum.shareit.request.dto.RequestItemDto;
 import ru.practicum.shareit.request.mapper.RequestMapper;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.repository.RequestSuggestionRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import javax.persistence.EntityManager;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -32,6 +36,14 @@ class ItemRequestServiceImplTest {
     UserRepository userRepository;
     @Mock
     ItemRequestRepository itemRequestRepository;
+    @Mock
+    ItemRepository itemRepository;
+    @Mock
+    EntityManager entityManager;
+    @Mock
+    RequestSuggestionRepository suggestionRepository;
+    @Mock
+    RequestMatcher requestMatcher;
     @InjectMocks
     ItemRequestServiceImpl itemRequestService;
 
@@ -39,44 +51,37 @@ class ItemRequestServiceImplTest {
     void addDescriptionNotNullValidBehavior() {
 
         Long userId = 0L;
-        Long ownerId = 0L;
         Long requestId = 0L;
         Long itemId = 0L;
         User user = User.builder().name("an").email("an@com").id(userId).build();
-        User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        Item item = Item.builder().id(itemId).name("thing").description("thing").owner(owner).requestId(requestId)
-                .available(true).build();
-        List<Item> items = new ArrayList<>();
-        items.add(item);
+        List<RequestItemDto> items = new ArrayList<>();
+        items.add(new RequestItemDto(itemId, "thing", "thing", true, requestId));
         LocalDateTime created = LocalDateTime.parse(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")));
         ItemRequest itemRequest = ItemRequest.builder().created(created).description("search thing")
-                .items(items).requestor(user).id(requestId).build();
-        ItemRequestDto itemRequestDto = RequestMapper.toRequestDto(itemRequest);
+                .requestor(user).id(requestId).build();
+        ItemRequestDto itemRequestDto = RequestMapper.toRequestDto(itemRequest, new ArrayList<>());
 
         when(userRepository.findById(any())).thenReturn(Optional.of(user));
         when(itemRequestRepository.save(itemRequest)).thenReturn(itemRequest);
         assertEquals(itemRequestDto, itemRequestService.add(userId, itemRequestDto));
         verify(itemRequestRepository).save(itemRequest);
+        verify(requestMatcher).match(itemRequest);
 
     }
 
     @Test
     void addDescriptionNullUnValidBehavior() {
         Long userId = 0L;
-        Long ownerId = 0L;
         Long requestId = 0L;
         Long itemId = 0L;
         String description = null;
         User user = User.builder().name("an").email("an@com").id(userId).build();
-        User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        Item item = Item.builder().id(itemId).name("thing").description("thing").owner(owner).requestId(requestId)
-                .available(true).build();
-        List<Item> items = new ArrayList<>();
-        items.add(item);
+        List<RequestItemDto> items = new ArrayList<>();
+        items.add(new RequestItemDto(itemId, "thing", "thing", true, requestId));
         LocalDateTime created = LocalDateTime.parse(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")));
         ItemRequest itemRequest = ItemRequest.builder().created(created).description(description)
-                .items(items).requestor(user).id(requestId).build();
-        ItemRequestDto itemRequestDto = RequestMapper.toRequestDto(itemRequest);
+                .requestor(user).id(requestId).build();
+        ItemRequestDto itemRequestDto = RequestMapper.toRequestDto(itemRequest, new ArrayList<>());
 
         when(userRepository.findById(any())).thenReturn(Optional.of(user));
         assertThrows(ValidationException.class, () -> itemRequestService.add(userId, itemRequestDto));
@@ -87,22 +92,22 @@ class ItemRequestServiceImplTest {
     @Test
     void getRequest() {
         Long userId = 0L;
-        Long ownerId = 0L;
         Long requestId = 0L;
         Long itemId = 0L;
         User user = User.builder().name("an").email("an@com").id(userId).build();
-        User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        Item item = Item.builder().id(itemId).name("thing").description("thing").owner(owner).requestId(requestId)
-                .available(true).build();
-        List<Item> items = new ArrayList<>();
-        items.add(item);
+        List<RequestItemDto> items = new ArrayList<>();
+        items.add(new RequestItemDto(itemId, "thing", "thing", true, requestId));
         LocalDateTime created = LocalDateTime.parse(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")));
         ItemRequest itemRequest = ItemRequest.builder().created(created).description("search thing")
-                .items(items).requestor(user).id(requestId).build();
-        ItemRequestDto itemRequestDto = RequestMapper.toRequestDto(itemRequest);
+                .requestor(user).id(requestId).build();
+        ItemRequestDto itemRequestDto = RequestMapper.toRequestDto(itemRequest, items);
 
         when(userRepository.findById(any())).thenReturn(Optional.of(user));
         when(itemRequestRepository.findById(requestId)).thenReturn(Optional.of(itemRequest));
+        when(itemRepository.findByRequestIdIn(List.of(requestId))).thenReturn(items);
+        List<RequestItemDto> suggestions = List.of(new RequestItemDto(5L, "drill", "cordless drill", true, null));
+        when(suggestionRepository.findItemsByRequestId(requestId)).thenReturn(suggestions);
+        itemRequestDto.setSuggestions(suggestions);
         assertEquals(itemRequestDto, itemRequestService.getRequest(userId, requestId));
         verify(itemRequestRepository).findById(requestId);
 
@@ -111,49 +116,66 @@ class ItemRequestServiceImplTest {
     @Test
     void getOwn() {
         Long userId = 0L;
-        Long ownerId = 0L;
         Long requestId = 0L;
         Long itemId = 0L;
         User user = User.builder().name("an").email("an@com").id(userId).build();
-        User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        Item item = Item.builder().id(itemId).name("thing").description("thing").owner(owner).requestId(requestId)
-                .available(true).build();
-        List<Item> items = new ArrayList<>();
-        items.add(item);
+        List<RequestItemDto> items = new ArrayList<>();
+        items.add(new RequestItemDto(itemId, "thing", "thing", true, requestId));
         LocalDateTime created = LocalDateTime.parse(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")));
         ItemRequest itemRequest = ItemRequest.builder().created(created).description("search thing")
-                .items(items).requestor(user).id(requestId).build();
-        ItemRequestDto itemRequestDto = RequestMapper.toRequestDto(itemRequest);
+                .requestor(user).id(requestId).build();
+        ItemRequestDto itemRequestDto = RequestMapper.toRequestDto(itemRequest, items);
         List<ItemRequest> itemRequests = new ArrayList<>();
         itemRequests.add(itemRequest);
         when(userRepository.findById(any())).thenReturn(Optional.of(user));
         when(itemRequestRepository.findByRequestor_idOrderByCreatedDesc(userId)).thenReturn(itemRequests);
+        when(itemRepository.findByRequestIdIn(List.of(requestId))).thenReturn(items);
         assertEquals(itemRequestDto, itemRequestService.getOwn(userId).get(0));
         verify(itemRequestRepository).findByRequestor_idOrderByCreatedDesc(userId);
     }
 
+    @Test
+    void getOwnGroupsItemsByRequest() {
+        Long userId = 0L;
+        User user = User.builder().name("an").email("an@com").id(userId).build();
+        LocalDateTime created = LocalDateTime.now();
+        ItemRequest first = ItemRequest.builder().created(created).description("drill").requestor(user).id(1L).build();
+        ItemRequest second = ItemRequest.builder().created(created).description("saw").requestor(user).id(2L).build();
+        ItemRequest third = ItemRequest.builder().created(created).description("ladder").requestor(user).id(3L).build();
+        RequestItemDto drill = new RequestItemDto(1L, "drill", "cordless drill", true, 1L);
+        RequestItemDto saw = new RequestItemDto(2L, "saw", "hand saw", true, 2L);
+        RequestItemDto oldSaw = new RequestItemDto(3L, "old saw", "rusty saw", false, 2L);
+        when(userRepository.findById(any())).thenReturn(Optional.of(user));
+        when(itemRequestRepository.findByRequestor_idOrderByCreatedDesc(userId)).thenReturn(List.of(first, second, third));
+        when(itemRepository.findByRequestIdIn(List.of(1L, 2L, 3L))).thenReturn(List.of(drill, saw, oldSaw));
+
+        List<ItemRequestDto> requests = itemRequestService.getOwn(userId);
+
+        assertEquals(requests.get(0).getItems(), List.of(drill));
+        assertEquals(requests.get(1).getItems(), List.of(saw, oldSaw));
+        assertEquals(requests.get(2).getItems(), List.of());
+        verify(itemRepository, times(1)).findByRequestIdIn(any());
+    }
+
     @Test
     void getAllPaged() {
         Long userId = 0L;
-        Long ownerId = 0L;
         Long requestId = 0L;
         Long itemId = 0L;
         User user = User.builder().name("an").email("an@com").id(userId).build();
-        User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        Item item = Item.builder().id(itemId).name("thing").description("thing").owner(owner).requestId(requestId)
-                .available(true).build();
-        List<Item> items = new ArrayList<>();
-        items.add(item);
+        List<RequestItemDto> items = new ArrayList<>();
+        items.add(new RequestItemDto(itemId, "thing", "thing", true, requestId));
         LocalDateTime created = LocalDateTime.parse(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")));
         ItemRequest itemRequest = ItemRequest.builder().created(created).description("search thing")
-                .items(items).requestor(user).id(requestId).build();
-        ItemRequestDto itemRequestDto = RequestMapper.toRequestDto(itemRequest);
+                .requestor(user).id(requestId).build();
+        ItemRequestDto itemRequestDto = RequestMapper.toRequestDto(itemRequest, items);
         List<ItemRequest> itemRequests = new ArrayList<>();
         itemRequests.add(itemRequest);
         Long from = 1L;
         Long size = 20L;
         PageRequest page = PageRequest.of(from.intValue() > 0 ? from.intValue() / size.intValue() : 0, size.intValue());
         when(itemRequestRepository.findAllPaged(userId, page)).thenReturn(itemRequests);
+        when(itemRepository.findByRequestIdIn(List.of(requestId))).thenReturn(items);
         assertEquals(itemRequestDto, itemRequestService.getAllPaged(userId, from, size).get(0));
         verify(itemRequestRepository).findAllPaged(userId, page);
     }
@@ -161,24 +183,85 @@ class ItemRequestServiceImplTest {
     @Test
     void getAll() {
         Long userId = 0L;
-        Long ownerId = 0L;
         Long requestId = 0L;
         Long itemId = 0L;
         User user = User.builder().name("an").email("an@com").id(userId).build();
-        User owner = User.builder().name("anl").email("anl@com").id(ownerId).build();
-        Item item = Item.builder().id(itemId).name("thing").description("thing").owner(owner).requestId(requestId)
-                .available(true).build();
-        List<Item> items = new ArrayList<>();
-        items.add(item);
+        List<RequestItemDto> items = new ArrayList<>();
+        items.add(new RequestItemDto(itemId, "thing", "thing", true, requestId));
         LocalDateTime created = LocalDateTime.parse(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")));
         ItemRequest itemRequest = ItemRequest.builder().created(created).description("search thing")
-                .items(items).requestor(user).id(requestId).build();
-        ItemRequestDto itemRequestDto = RequestMapper.toRequestDto(itemRequest);
+                .requestor(user).id(requestId).build();
+        ItemRequestDto itemRequestDto = RequestMapper.toRequestDto(itemRequest, items);
         List<ItemRequest> itemRequests = new ArrayList<>();
         itemRequests.add(itemRequest);
         when(itemRequestRepository.findAllIt(userId)).thenReturn(itemRequests);
+        when(itemRepository.findByRequestOfOtherUsers(userId)).thenReturn(items);
         assertEquals(itemRequestDto, itemRequestService.getAll(userId).get(0));
         verify(itemRequestRepository).findAllIt(userId);
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamAllReadsItemsPerChunkAndDetachesRequests() {
+        Long userId = 0L;
+        User user = User.builder().name("an").email("an@com").id(1L).build();
+        List<ItemRequest> itemRequests = new ArrayList<>();
+        for (long i = 1; i <= 150; i++) {
+            itemRequests.add(ItemRequest.builder().id(i).description("request" + i).requestor(user).build());
+        }
+        when(itemRequestRepository.streamAll(userId)).thenReturn(itemRequests.stream());
+        when(itemRepository.findByRequestIdIn(any()))
+                .thenReturn(List.of(new RequestItemDto(7L, "drill", "cordless drill", true, 1L)))
+                .thenReturn(List.of());
+        List<ItemRequestDto> consumed = new ArrayList<>();
+
+        itemRequestService.streamAll(userId, consumed::add);
+
+        assertEquals(consumed.size(), 150);
+        assertEquals(consumed.get(0).getItems().size(), 1);
+        assertEquals(consumed.get(149).getId(), 150L);
+        verify(itemRepository, times(2)).findByRequestIdIn(any());
+        verify(entityManager, times(150)).detach(any());
+    }
+
+    @Test
+    void getAllPageReturnsCursorOfLastRequest() {
+        Long userId = 0L;
+        User user = User.builder().name("an").email("an@com").id(1L).build();
+        LocalDateTime created = LocalDateTime.of(2023, 1, 10, 12, 0);
+        List<ItemRequest> itemRequests = List.of(
+                ItemRequest.builder().id(5L).description("drill").created(created).requestor(user).build(),
+                ItemRequest.builder().id(4L).description("saw").created(created).requestor(user).build(),
+                ItemRequest.builder().id(3L).description("ladder").created(created.minusDays(1)).requestor(user).build());
+        when(itemRequestRepository.findAllPaged(userId, PageRequest.of(0, 3))).thenReturn(itemRequests);
+        when(itemRepository.findByRequestIdIn(List.of(5L, 4L))).thenReturn(List.of());
+
+        ItemRequestPage page = itemRequestService.getAllPage(userId, null, 2);
+
+        assertEquals(page.getRequests().size(), 2);
+        RequestCursor next = RequestCursor.decode(page.getNext());
+        assertEquals(next.getCreated(), created);
+        assertEquals(next.getId(), 4L);
+    }
+
+    @Test
+    void getAllPageContinuesBeforeCursor() {
+        Long userId = 0L;
+        LocalDateTime created = LocalDateTime.of(2023, 1, 10, 12, 0, 0, 123456000);
+        String before = new RequestCursor(created, 4L).encode();
+        when(itemRequestRepository.findAllBefore(userId, created, 4L, PageRequest.of(0, 3))).thenReturn(List.of());
+
+        ItemRequestPage page = itemRequestService.getAllPage(userId, before, 2);
+
+        assertEquals(page.getRequests().size(), 0);
+        assertEquals(page.getNext(), null);
+        verify(itemRequestRepository, never()).findAllPaged(any(), any());
+    }
+
+    @Test
+    void getAllPageRejectsMalformedCursor() {
+        assertThrows(ValidationException.class, () -> itemRequestService.getAllPage(0L, "bm90LWEtY3Vyc29y", 2));
+        assertThrows(ValidationException.class, () -> itemRequestService.getAllPage(0L, "%%%", 2));
+        verify(itemRequestRepository, never()).findAllBefore(any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,79 @@
+package ru.practicum.shareit.request.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemMatch;
+import ru.practicum.shareit.item.service.ItemSearchIndex;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.model.RequestSuggestion;
+import ru.practicum.shareit.request.repository.RequestSuggestionRepository;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RequestMatcherTest {
+    @Mock
+    ItemSearchIndex searchIndex;
+    @Mock
+    RequestSuggestionRepository suggestionRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    RequestMatcher matcher;
+
+    @BeforeEach
+    void createMatcher() {
+        matcher = new RequestMatcher(searchIndex, suggestionRepository, transactionManager, 2);
+    }
+
+    @AfterEach
+    void shutdown() {
+        matcher.shutdown();
+    }
+
+    private ItemMatch match(Long id, int score) {
+        return new ItemMatch(ItemDto.builder().id(id).name("drill").available(true).owner(3L).build(), score);
+    }
+
+    @Test
+    void suggestStoresMatchesWithScores() {
+        when(searchIndex.match("need a drill", 1L, 2)).thenReturn(List.of(match(5L, 8), match(4L, 2)));
+
+        List<RequestSuggestion> suggestions = matcher.suggest(7L, 1L, "need a drill");
+
+        assertEquals(suggestions, List.of(new RequestSuggestion(7L, 5L, 8), new RequestSuggestion(7L, 4L, 2)));
+        verify(suggestionRepository).saveAll(suggestions);
+    }
+
+    @Test
+    void suggestWithoutMatchesWritesNothing() {
+        when(searchIndex.match("need a ladder", 1L, 2)).thenReturn(List.of());
+
+        assertEquals(matcher.suggest(7L, 1L, "need a ladder").size(), 0);
+        verify(suggestionRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void matchRunsInBackground() {
+        User requestor = User.builder().id(1L).name("an").email("an@com").build();
+        when(searchIndex.match("need a drill", 1L, 2)).thenReturn(List.of(match(5L, 8)));
+
+        matcher.match(ItemRequest.builder().id(7L).description("need a drill").requestor(requestor).build());
+
+        verify(suggestionRepository, timeout(5000)).saveAll(List.of(new RequestSuggestion(7L, 5L, 8)));
+    }
+}
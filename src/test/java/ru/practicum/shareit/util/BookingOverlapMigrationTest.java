@@ -0,0 +1,77 @@
+package ru.practicum.shareit.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the migration against bookings written before overlapping waiting and approved bookings were rejected.
+ */
+class BookingOverlapMigrationTest {
+    private final LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+    private JdbcTemplate jdbcTemplate;
+    private BookingOverlapMigration migration;
+
+    @BeforeEach
+    void createLegacyBookings() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:overlaps;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("drop all objects");
+        jdbcTemplate.execute("create table items (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("create table bookings (id BIGINT PRIMARY KEY, item_id BIGINT, " +
+                "start_date TIMESTAMP, end_date TIMESTAMP, status VARCHAR(16))");
+        jdbcTemplate.update("insert into items (id) values (1), (2), (3)");
+        // item 1: a waiting booking overlaps an approved one that was created after it
+        booking(1, 1, 0, 2, "WAITING");
+        booking(2, 1, 1, 3, "APPROVED");
+        booking(3, 1, 3, 4, "WAITING");
+        // item 2: two waiting bookings overlap, a rejected one overlaps both and stays as it is
+        booking(4, 2, 0, 2, "WAITING");
+        booking(5, 2, 1, 3, "WAITING");
+        booking(6, 2, 0, 5, "REJECTED");
+        // item 3: back to back bookings do not overlap
+        booking(7, 3, 0, 1, "APPROVED");
+        booking(8, 3, 1, 2, "WAITING");
+        migration = new BookingOverlapMigration(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+    }
+
+    @Test
+    void rejectsBookingsOverlappingKeptOnes() {
+        migration.migrate();
+
+        assertEquals(status(1), "REJECTED");
+        assertEquals(status(2), "APPROVED");
+        assertEquals(status(3), "WAITING");
+        assertEquals(status(4), "WAITING");
+        assertEquals(status(5), "REJECTED");
+        assertEquals(status(6), "REJECTED");
+        assertEquals(status(7), "APPROVED");
+        assertEquals(status(8), "WAITING");
+    }
+
+    @Test
+    void migratedBookingsAreLeftAlone() {
+        migration.migrate();
+        jdbcTemplate.update("update bookings set status = 'CANCELED' where id = 2");
+        migration.migrate();
+
+        assertEquals(status(1), "REJECTED");
+        assertEquals(status(3), "WAITING");
+    }
+
+    private void booking(long id, long itemId, int startHours, int endHours, String status) {
+        jdbcTemplate.update("insert into bookings (id, item_id, start_date, end_date, status) values (?, ?, ?, ?, ?)",
+                id, itemId, Timestamp.valueOf(start.plusHours(startHours)), Timestamp.valueOf(start.plusHours(endHours)), status);
+    }
+
+    private String status(long id) {
+        return jdbcTemplate.queryForObject("select status from bookings where id = ?", String.class, id);
+    }
+}
@@ -0,0 +1,56 @@
+package ru.practicum.shareit.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the migration against tables shaped like the ones created before the switch to sequences.
+ */
+class IdSequenceMigrationTest {
+    private JdbcTemplate jdbcTemplate;
+    private IdSequenceMigration migration;
+
+    @BeforeEach
+    void createLegacyTables() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:legacy;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("drop all objects");
+        for (String table : IdSequenceMigration.TABLES) {
+            jdbcTemplate.execute("create table " + table + " (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                    "name VARCHAR(16))");
+            jdbcTemplate.execute("create sequence " + table + "_seq start with 1 increment by 50");
+        }
+        jdbcTemplate.update("insert into users (name) values ('a'), ('b'), ('c')");
+        jdbcTemplate.update("insert into items (id, name) values (500, 'drill')");
+        migration = new IdSequenceMigration(jdbcTemplate);
+    }
+
+    @Test
+    void dropsIdentityAndMovesSequencesPastExistingIds() {
+        migration.migrate();
+
+        assertEquals(jdbcTemplate.queryForObject("select count(*) from information_schema.columns " +
+                "where is_identity = 'YES' and table_schema = current_schema", Integer.class), 0);
+        assertEquals(nextBlockStart("users"), 4L);
+        assertEquals(nextBlockStart("items"), 501L);
+        assertEquals(jdbcTemplate.queryForObject("select nextval('bookings_seq')", Long.class), 1L);
+    }
+
+    @Test
+    void migratedDatabaseKeepsGoingForward() {
+        migration.migrate();
+        long first = nextBlockStart("items");
+        migration.migrate();
+
+        assertTrue(nextBlockStart("items") > first);
+    }
+
+    private long nextBlockStart(String table) {
+        Long next = jdbcTemplate.queryForObject("select nextval('" + table + "_seq')", Long.class);
+        return next - IdSequenceMigration.ALLOCATION_SIZE + 1;
+    }
+}